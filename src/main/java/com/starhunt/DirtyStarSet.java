@@ -0,0 +1,40 @@
+package com.starhunt;
+
+import java.util.Arrays;
+
+/**
+ * Set of star keys waiting to be verified, kept in the order they were marked.
+ */
+public class DirtyStarSet {
+    private final LongIntMap members = new LongIntMap();
+    private long[] keys = new long[16];
+    private int size;
+
+    public void mark(long key) {
+        if (members.put(key, 1, 0) == 0) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size << 1);
+            }
+            keys[size++] = key;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long get(int i) {
+        return keys[i];
+    }
+
+    public void clear() {
+        if (size > 0) {
+            members.clear();
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.starhunt;
+
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of nanosecond durations in the style of HdrHistogram.
+ * Each power of two is split into 16 buckets, which keeps the relative error
+ * around 6% across the whole range with a fixed, small array of counters.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+    public synchronized void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts[indexOf(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max) {
+            max = nanos;
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    public synchronized long getMean() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100
+     * @return Upper bound of the bucket holding the given percentile, in nanoseconds
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                // The last bucket has no next bucket to bound it
+                long next = lowerBound(i + 1);
+                return Math.min(max, next == Long.MAX_VALUE ? next : next - 1);
+            }
+        }
+        return max;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int index) {
+        int bucket = index / SUB_BUCKETS;
+        int sub = index % SUB_BUCKETS;
+        if (bucket == 0) {
+            return sub;
+        }
+        if (bucket >= Long.SIZE - SUB_BUCKET_BITS) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (SUB_BUCKETS + sub) << (bucket - 1);
+    }
+}
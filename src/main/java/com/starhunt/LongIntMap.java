@@ -0,0 +1,149 @@
+package com.starhunt;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to primitive int values.
+ * Uses linear probing with backward-shift deletion so no tombstones build up.
+ * {@link Long#MIN_VALUE} is reserved as the empty marker and cannot be used as a key.
+ */
+public class LongIntMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    public LongIntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @param key The key to look up
+     * @param missing Value to return if the key is not present
+     * @return The mapped value, or {@code missing}
+     */
+    public int get(long key, int missing) {
+        int i = indexOf(key);
+        return i < 0 ? missing : values[i];
+    }
+
+    /**
+     * @return The previous value, or {@code missing} if the key was not present
+     */
+    public int put(long key, int value, int missing) {
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                int previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            i = (i + 1) & mask;
+        }
+
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) {
+            rehash(keys.length << 1);
+        }
+        return missing;
+    }
+
+    /**
+     * @return The removed value, or {@code missing} if the key was not present
+     */
+    public int remove(long key, int missing) {
+        int i = indexOf(key);
+        if (i < 0) {
+            return missing;
+        }
+
+        int removed = values[i];
+        size--;
+
+        // Shift following entries of the probe chain back into the hole
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (keys[j] == EMPTY) {
+                break;
+            }
+            int ideal = slot(keys[j]);
+            boolean reachable = i <= j ? (i < ideal && ideal <= j) : (i < ideal || ideal <= j);
+            if (reachable) {
+                continue;
+            }
+            keys[i] = keys[j];
+            values[i] = values[j];
+            i = j;
+        }
+        keys[i] = EMPTY;
+        return removed;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+        }
+    }
+
+    private int indexOf(long key) {
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = slot(oldKeys[i]);
+                while (keys[j] != EMPTY) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+}
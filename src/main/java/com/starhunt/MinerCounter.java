@@ -0,0 +1,113 @@
+package com.starhunt;
+
+import net.runelite.api.Client;
+import net.runelite.api.Player;
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts the players mining each star.
+ * Players are hashed by tile once per tick and shared by every star, so counting
+ * the miners of a star only looks at the 12 tiles a star can be mined from.
+ * Players who mined recently are remembered by player index for a few ticks,
+ * so the memory is bounded by the number of player slots.
+ */
+public class MinerCounter {
+    private static final int NONE = -1;
+    // Player indexes are 11 bits
+    private static final int MAX_PLAYERS = 2048;
+    private static final int MINING_CACHE_TICKS = 13;
+    // Far enough in the past to never count as recent, without overflowing when subtracted
+    private static final int NEVER_MINED = -MINING_CACHE_TICKS;
+
+    // Offsets from the south west tile of a 2x2 star to the tiles it can be mined from and the star itself
+    private static final int[] ADJACENT_DX = {0, 1, 0, 1, -1, -1, 2, 2, 0, 1, 0, 1};
+    private static final int[] ADJACENT_DY = {0, 0, 1, 1, 0, 1, 0, 1, -1, -1, 2, 2};
+
+    // Tile key to the first player on the tile, further players are chained through next
+    private final LongIntMap tileHeads = new LongIntMap(256);
+    private Player[] players = new Player[64];
+    private int[] next = new int[64];
+    private int size;
+    private int builtTick = NONE;
+
+    private final int[] lastMinedTick = new int[MAX_PLAYERS];
+    private final int[] lastSeenTick = new int[MAX_PLAYERS];
+
+    public MinerCounter() {
+        Arrays.fill(lastMinedTick, NEVER_MINED);
+        Arrays.fill(lastSeenTick, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Counts the players mining a star, hashing the players for this tick on first use
+     *
+     * @return The number of players mining the star
+     */
+    public int count(Client client, WorldPoint star) {
+        int tick = client.getTickCount();
+        if (tick != builtTick) {
+            build(client.getPlayers(), tick);
+        }
+
+        int count = 0;
+        for (int t = 0; t < ADJACENT_DX.length; t++) {
+            long key = StarRegistry.key(0, star.getX() + ADJACENT_DX[t], star.getY() + ADJACENT_DY[t], star.getPlane());
+            for (int i = tileHeads.get(key, NONE); i != NONE; i = next[i]) {
+                if (isMining(players[i], tick)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public void clear() {
+        Arrays.fill(players, 0, size, null);
+        tileHeads.clear();
+        size = 0;
+        builtTick = NONE;
+        Arrays.fill(lastMinedTick, NEVER_MINED);
+        Arrays.fill(lastSeenTick, Integer.MIN_VALUE);
+    }
+
+    private void build(List<Player> scenePlayers, int tick) {
+        Arrays.fill(players, 0, size, null);
+        tileHeads.clear();
+        size = 0;
+
+        for (int p = 0; p < scenePlayers.size(); p++) {
+            Player player = scenePlayers.get(p);
+            int id = player.getId() & (MAX_PLAYERS - 1);
+            if (lastSeenTick[id] < builtTick) {
+                // The slot was free last tick, so this may be a different player
+                lastMinedTick[id] = NEVER_MINED;
+            }
+            lastSeenTick[id] = tick;
+
+            if (size == players.length) {
+                players = Arrays.copyOf(players, size << 1);
+                next = Arrays.copyOf(next, size << 1);
+            }
+            WorldPoint location = player.getWorldLocation();
+            long key = StarRegistry.key(0, location.getX(), location.getY(), location.getPlane());
+            players[size] = player;
+            next[size] = tileHeads.put(key, size, NONE);
+            size++;
+        }
+        builtTick = tick;
+    }
+
+    private boolean isMining(Player player, int tick) {
+        int id = player.getId() & (MAX_PLAYERS - 1);
+        if (MiningAnimations.isMining(player.getAnimation())) {
+            lastMinedTick[id] = tick;
+            return true;
+        }
+
+        // Players keep mining between swings, so count anyone who mined recently
+        return player.getHealthRatio() >= 0 && tick - lastMinedTick[id] < MINING_CACHE_TICKS;
+    }
+}
@@ -0,0 +1,73 @@
+package com.starhunt;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Set of the player animations that mean a player is mining a star.
+ * The IDs are read once from the mining_animations.txt resource into a bitset,
+ * so checking an animation is a single word lookup.
+ */
+@Slf4j
+public final class MiningAnimations {
+    private static final String RESOURCE = "mining_animations.txt";
+    private static final long[] WORDS = load();
+
+    private MiningAnimations() {
+    }
+
+    /**
+     * @return Whether the animation is one of the mining animations
+     */
+    public static boolean isMining(int animationId) {
+        // Negative IDs, such as the idle animation, shift to an index past the end
+        int word = animationId >>> 6;
+        return word < WORDS.length && (WORDS[word] & (1L << animationId)) != 0;
+    }
+
+    private static long[] load() {
+        long[] words = new long[0];
+        try (InputStream in = MiningAnimations.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                log.warn("Missing {} resource, miners will not be counted", RESOURCE);
+                return words;
+            }
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                String id = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (id.isEmpty()) {
+                    continue;
+                }
+
+                int animationId;
+                try {
+                    animationId = Integer.parseInt(id);
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring invalid mining animation ID: {}", id);
+                    continue;
+                }
+                if (animationId < 0) {
+                    continue;
+                }
+
+                int word = animationId >>> 6;
+                if (word >= words.length) {
+                    words = Arrays.copyOf(words, word + 1);
+                }
+                words[word] |= 1L << animationId;
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read {}", RESOURCE, e);
+        }
+        return words;
+    }
+}
@@ -0,0 +1,247 @@
+package com.starhunt;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.coords.WorldPoint;
+import net.runelite.client.RuneLite;
+
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * On-disk cache of network stars so the panel and overlay are filled right after startup.
+ * Stars are appended as fixed-size records whenever they change, and the file is
+ * compacted down to the live stars once it grows too large.
+ */
+@Slf4j
+@Singleton
+public class StarCache {
+    private static final File CACHE_DIR = new File(RuneLite.RUNELITE_DIR, "starhunt");
+    private static final String CACHE_FILE = "stars.cache";
+
+    private static final int MAGIC = 0x53484331; // "SHC1"
+    private static final int HEADER_SIZE = 4;
+    static final int RECORD_SIZE = 21;
+
+    // Compact when the file holds this many times more records than there are live stars
+    private static final int COMPACT_RATIO = 4;
+    private static final int COMPACT_MIN_RECORDS = 256;
+
+    private final Path path;
+    private final ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 64);
+
+    private FileChannel channel;
+    private long records;
+    private StarSnapshot lastSaved = StarSnapshot.EMPTY;
+
+    public StarCache() {
+        this(CACHE_DIR.toPath().resolve(CACHE_FILE));
+    }
+
+    StarCache(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Read the cached stars, dropping inactive stars and stars not updated within the time to live
+     *
+     * @param ttlMs Maximum age of a star in milliseconds
+     * @return The latest cached state of each live star
+     */
+    public synchronized List<StarData> load(long ttlMs) {
+        List<StarData> loaded = new ArrayList<>();
+        if (!Files.isRegularFile(path)) {
+            return loaded;
+        }
+
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        StarRegistry latest = new StarRegistry(ttlMs);
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocate((int) Math.min(in.size(), Integer.MAX_VALUE));
+            while (data.hasRemaining() && in.read(data) >= 0) {
+                // Read the whole file
+            }
+            data.flip();
+
+            if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+                log.debug("Ignoring star cache with unknown format");
+                return loaded;
+            }
+
+            // Later records replace earlier ones for the same star
+            while (data.remaining() >= RECORD_SIZE) {
+                latest.put(readRecord(data));
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read star cache", e);
+            return loaded;
+        }
+
+        for (StarData star : latest.values()) {
+            if (star.isActive() && star.getLastUpdate() >= cutoff) {
+                loaded.add(star);
+            }
+        }
+        log.debug("Loaded {} stars from cache", loaded.size());
+        return loaded;
+    }
+
+    /**
+     * Append the stars that changed since the last save. Stars are compared by identity,
+     * which works because snapshots share the copies of unchanged stars.
+     */
+    public synchronized void save(StarSnapshot snapshot) {
+        if (snapshot == lastSaved) {
+            return;
+        }
+
+        try {
+            if (records > COMPACT_MIN_RECORDS && records > (long) snapshot.size() * COMPACT_RATIO) {
+                compact(snapshot);
+            } else {
+                append(snapshot);
+            }
+            lastSaved = snapshot;
+        } catch (IOException e) {
+            log.warn("Failed to write star cache", e);
+            closeChannel();
+        }
+    }
+
+    public synchronized void close() {
+        closeChannel();
+        lastSaved = StarSnapshot.EMPTY;
+    }
+
+    private void append(StarSnapshot snapshot) throws IOException {
+        FileChannel out = openChannel();
+        List<StarData> previous = lastSaved.getStars();
+        LongIntMap previousIndex = new LongIntMap(previous.size());
+        for (int i = 0; i < previous.size(); i++) {
+            previousIndex.put(previous.get(i).getKey(), i, -1);
+        }
+
+        buffer.clear();
+        for (StarData star : snapshot.getStars()) {
+            int i = previousIndex.get(star.getKey(), -1);
+            if (i >= 0 && previous.get(i) == star) {
+                continue;
+            }
+
+            if (buffer.remaining() < RECORD_SIZE) {
+                flush(out);
+            }
+            writeRecord(buffer, star);
+            records++;
+        }
+        flush(out);
+    }
+
+    private void compact(StarSnapshot snapshot) throws IOException {
+        closeChannel();
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.clear();
+            buffer.putInt(MAGIC);
+            for (StarData star : snapshot.getStars()) {
+                if (buffer.remaining() < RECORD_SIZE) {
+                    flush(out);
+                }
+                writeRecord(buffer, star);
+            }
+            flush(out);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        log.debug("Compacted star cache from {} to {} records", records, snapshot.size());
+        records = snapshot.size();
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            Files.createDirectories(path.getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() == HEADER_SIZE && header.getInt() == MAGIC) {
+                // Drop any partial record left by an interrupted write
+                records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+                channel.truncate(HEADER_SIZE + records * RECORD_SIZE);
+            } else {
+                channel.truncate(0);
+                buffer.clear();
+                buffer.putInt(MAGIC);
+                flush(channel);
+                records = 0;
+            }
+            channel.position(channel.size());
+        }
+        return channel;
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Failed to close star cache", e);
+            }
+            channel = null;
+        }
+    }
+
+    private void flush(FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Record layout: world (2) x (2) y (2) plane (1) location (1) tier (1) health (1)
+     * miners (2) active (1) lastUpdate (8)
+     */
+    static void writeRecord(ByteBuffer out, StarData star) {
+        WorldPoint point = star.getWorldPoint();
+        out.putShort((short) star.getWorld());
+        out.putShort((short) point.getX());
+        out.putShort((short) point.getY());
+        out.put((byte) point.getPlane());
+        out.put(star.getLocationId());
+        out.put((byte) star.getTier());
+        out.put((byte) star.getHealth());
+        out.putShort((short) star.getMiners());
+        out.put((byte) (star.isActive() ? 1 : 0));
+        out.putLong(star.getLastUpdate());
+    }
+
+    static StarData readRecord(ByteBuffer in) {
+        int world = in.getShort() & 0xFFFF;
+        int x = in.getShort() & 0xFFFF;
+        int y = in.getShort() & 0xFFFF;
+        int plane = in.get();
+        // The site ID is looked up again from the world point
+        in.get();
+        int tier = in.get();
+        int health = in.get();
+        int miners = in.getShort();
+        boolean active = in.get() != 0;
+        long lastUpdate = in.getLong();
+        return new StarData(new WorldPoint(x, y, plane), world, tier, health, miners,
+                null, active, lastUpdate, null);
+    }
+}
@@ -0,0 +1,113 @@
+package com.starhunt;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded multi-producer, single-consumer queue of star state changes.
+ * Any thread may submit a command; commands are only ever run by the thread that
+ * drains the queue, which makes it the single writer of all star state.
+ */
+@Slf4j
+public class StarCommandQueue {
+    private final ArrayBlockingQueue<Command> queue;
+
+    private final AtomicLong dropped = new AtomicLong();
+    // Set while commands are being dropped, so a backed up queue only warns once
+    private final AtomicBoolean full = new AtomicBoolean();
+
+    // Only updated by the draining thread
+    @Getter
+    private long executed;
+    @Getter
+    private int maxDepth;
+    @Getter
+    private long maxLatencyNanos;
+    private long totalLatencyNanos;
+
+    public StarCommandQueue(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Queue a command to be run by the writer thread
+     *
+     * @return false if the queue was full and the command was dropped
+     */
+    public boolean submit(Runnable action) {
+        if (!queue.offer(new Command(action, System.nanoTime()))) {
+            long count = dropped.incrementAndGet();
+            if (full.compareAndSet(false, true)) {
+                log.warn("Star command queue is full, dropping commands ({} dropped so far)", count);
+            }
+            return false;
+        }
+        if (full.get() && full.compareAndSet(true, false)) {
+            log.info("Star command queue is accepting commands again ({} dropped so far)", dropped.get());
+        }
+        return true;
+    }
+
+    /**
+     * Run every queued command on the calling thread
+     *
+     * @return The number of commands run
+     */
+    public int drain() {
+        int depth = queue.size();
+        if (depth == 0) {
+            return 0;
+        }
+        maxDepth = Math.max(maxDepth, depth);
+
+        int count = 0;
+        Command command;
+        while (count < depth && (command = queue.poll()) != null) {
+            long latency = System.nanoTime() - command.submittedNanos;
+            totalLatencyNanos += latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+
+            try {
+                command.action.run();
+            } catch (Exception e) {
+                log.error("Star command failed", e);
+            }
+            count++;
+        }
+        executed += count;
+        return count;
+    }
+
+    public int getDepth() {
+        return queue.size();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return Mean time commands spent waiting in the queue, in nanoseconds
+     */
+    public long getAverageLatencyNanos() {
+        return executed == 0 ? 0 : totalLatencyNanos / executed;
+    }
+
+    public void clear() {
+        queue.clear();
+    }
+
+    private static final class Command {
+        private final Runnable action;
+        private final long submittedNanos;
+
+        private Command(Runnable action, long submittedNanos) {
+            this.action = action;
+            this.submittedNanos = submittedNanos;
+        }
+    }
+}
@@ -1,63 +1,45 @@
 package com.starhunt;
 
-import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
 import net.runelite.api.Client;
 import net.runelite.api.GameObject;
 import net.runelite.api.NPC;
-import net.runelite.api.ObjectID;
-import net.runelite.api.Player;
-import net.runelite.api.coords.WorldArea;
 import net.runelite.api.coords.WorldPoint;
 
-import java.time.Instant;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 
-@Data
 public class StarData {
-    // Same tier IDs as in the original plugin
-    private static final int[] TIER_IDS = new int[]{
-            ObjectID.CRASHED_STAR_41229,
-            ObjectID.CRASHED_STAR_41228,
-            ObjectID.CRASHED_STAR_41227,
-            ObjectID.CRASHED_STAR_41226,
-            ObjectID.CRASHED_STAR_41225,
-            ObjectID.CRASHED_STAR_41224,
-            ObjectID.CRASHED_STAR_41223,
-            ObjectID.CRASHED_STAR_41021,
-            ObjectID.CRASHED_STAR,
-    };
-
-    public static final String UNKNOWN_MINERS = "?";
-    private static final int MINING_CACHE_TIME = 13;
-    private static final Map<String, Integer> playerLastMined = new HashMap<>();
-
-    // This data will be serialized and sent over websocket
+    public static final int UNKNOWN_MINERS = -1;
+    public static final byte UNKNOWN_LOCATION = -1;
+
+    // This data will be serialized and sent over websocket by StarDataAdapter
     @Getter private final WorldPoint worldPoint;
     @Getter private final int world;
-    @Getter @Setter private String location;
+    // ID of the StarLocation the star landed at, see getLocation() for the name
+    @Getter private final byte locationId;
     @Getter @Setter private int tier = -1;
     @Getter @Setter private int health = -1;
-    @Getter @Setter private String miners = UNKNOWN_MINERS;
+    @Getter @Setter private int miners = UNKNOWN_MINERS;
     @Getter @Setter private int[] tierTicksEstimate;
     @Getter @Setter private boolean active = true;
-    @Getter @Setter private Instant lastUpdate = Instant.now();
+    // Epoch milliseconds
+    @Getter @Setter private long lastUpdate = System.currentTimeMillis();
     @Getter @Setter private String discoveredBy;
 
     // These fields won't be serialized
     @Getter @Setter private transient NPC npc;
     @Getter @Setter private transient GameObject object;
+    // Epoch milliseconds this client last shared the star, 0 if never
+    @Getter @Setter private transient long lastShared;
 
     public StarData(NPC npc, int world) {
         this.npc = npc;
         this.worldPoint = npc.getWorldLocation();
         this.world = world;
-        this.location = getLocationName(worldPoint);
+        this.locationId = getLocationId(worldPoint);
         this.active = true; // Ensure new stars are active by default
-        this.lastUpdate = Instant.now();
+        this.lastUpdate = System.currentTimeMillis();
     }
 
     public StarData(GameObject gameObject, int world) {
@@ -65,35 +47,59 @@ public class StarData {
         this.worldPoint = gameObject.getWorldLocation();
         this.world = world;
         this.tier = getTier(gameObject.getId());
-        this.location = getLocationName(worldPoint);
+        this.locationId = getLocationId(worldPoint);
         this.active = true; // Ensure new stars are active by default
-        this.lastUpdate = Instant.now();
+        this.lastUpdate = System.currentTimeMillis();
     }
 
-    // Deserialization constructor
-    public StarData(WorldPoint worldPoint, int world, String location, int tier, int health,
-                    String miners, int[] tierTicksEstimate, boolean active, Instant lastUpdate,
+    // Deserialization constructor. The landing site is always looked up from the world point,
+    // never taken from the data, so a peer can't file a star under another site's key.
+    public StarData(WorldPoint worldPoint, int world, int tier, int health,
+                    int miners, int[] tierTicksEstimate, boolean active, long lastUpdate,
                     String discoveredBy) {
         this.worldPoint = worldPoint;
         this.world = world;
-        this.location = location;
+        this.locationId = getLocationId(worldPoint);
         this.tier = tier;
         this.health = health;
         this.miners = miners;
         this.tierTicksEstimate = tierTicksEstimate;
         // If active isn't specified, default to true
         this.active = active;
-        this.lastUpdate = lastUpdate != null ? lastUpdate : Instant.now();
+        this.lastUpdate = lastUpdate > 0 ? lastUpdate : System.currentTimeMillis();
         this.discoveredBy = discoveredBy;
     }
 
+    /**
+     * Creates a detached copy of the shareable star state, without the NPC or game object
+     *
+     * @return A new star with the same data
+     */
+    public StarData copy() {
+        return new StarData(worldPoint, world, getTier(), getHealth(), miners,
+                tierTicksEstimate != null ? Arrays.copyOf(tierTicksEstimate, tierTicksEstimate.length) : null,
+                active, lastUpdate, discoveredBy);
+    }
+
+    /**
+     * @return The registry key for this star, see {@link StarRegistry#key(int, int, WorldPoint)}
+     */
+    public long getKey() {
+        return StarRegistry.key(world, getSiteId(), worldPoint);
+    }
+
+    /**
+     * @return The ID of the landing site this star is at, or -1 if it isn't at a known site
+     */
+    public int getSiteId() {
+        return locationId == UNKNOWN_LOCATION ? -1 : locationId & 0xFF;
+    }
+
+    /**
+     * @return The star size of a crashed star object, or -1 if the object isn't a star
+     */
     public static int getTier(int id) {
-        for (int i = 0; i < TIER_IDS.length; i++) {
-            if (id == TIER_IDS[i]) {
-                return i + 1;
-            }
-        }
-        return -1;
+        return StarTier.getSize(id);
     }
 
     public int getTier() {
@@ -126,9 +132,10 @@ public class StarData {
     /**
      * Update star information based on client data
      * @param client The RuneLite client
+     * @param minerCounter Miner counts for the current tick
      * @return true if the star data changed
      */
-    public boolean update(Client client) {
+    public boolean update(Client client, MinerCounter minerCounter) {
         boolean changed = false;
 
         // Update tier
@@ -148,7 +155,7 @@ public class StarData {
             } else {
                 // Even if the health value is the same, we should periodically update
                 // to make sure the UI stays fresh
-                long timeSinceLastUpdate = Instant.now().toEpochMilli() - lastUpdate.toEpochMilli();
+                long timeSinceLastUpdate = System.currentTimeMillis() - lastUpdate;
                 if (timeSinceLastUpdate > 2000) { // Update at least every 2 seconds
                     changed = true;
                 }
@@ -159,14 +166,14 @@ public class StarData {
         }
 
         // Update miners count
-        String newMiners = countMiners(client);
-        if (!miners.equals(newMiners)) {
+        int newMiners = countMiners(client, minerCounter);
+        if (miners != newMiners) {
             miners = newMiners;
             changed = true;
         }
 
         if (changed) {
-            lastUpdate = Instant.now();
+            lastUpdate = System.currentTimeMillis();
         }
 
         return changed;
@@ -190,7 +197,7 @@ public class StarData {
             this.health = other.getHealth();
         }
 
-        if (!other.getMiners().equals(UNKNOWN_MINERS)) {
+        if (other.getMiners() != UNKNOWN_MINERS) {
             this.miners = other.getMiners();
         }
 
@@ -211,7 +218,7 @@ public class StarData {
         }
     }
 
-    private String countMiners(Client client) {
+    private int countMiners(Client client, MinerCounter minerCounter) {
         if (worldPoint == null || !active) {
             return UNKNOWN_MINERS;
         }
@@ -226,48 +233,16 @@ public class StarData {
             return miners;
         }
 
-        WorldArea areaH = new WorldArea(worldPoint.dx(-1), 4, 2);
-        WorldArea areaV = new WorldArea(worldPoint.dy(-1), 2, 4);
-        int count = 0;
-        int tickCount = client.getTickCount();
-
-        for (Player p : client.getPlayers()) {
-            if (!p.getWorldLocation().isInArea2D(areaH, areaV)) {
-                // Skip players not next to the star
-                continue;
-            }
-
-            if (isMiningAnimation(p.getAnimation())) {
-                count++;
-                playerLastMined.put(p.getName(), tickCount);
-                continue;
-            }
-
-            if (p.getHealthRatio() < 0 || !playerLastMined.containsKey(p.getName())) {
-                continue;
-            }
-
-            int ticksSinceMinedLast = tickCount - playerLastMined.get(p.getName());
-            if (ticksSinceMinedLast < MINING_CACHE_TIME) {
-                count++;
-            }
-        }
-
-        return Integer.toString(count);
-    }
-
-    private boolean isMiningAnimation(int animId) {
-        // This is a simplified version - you may want to check against the full list from StarInfoPlugin
-        return animId >= 624 && animId <= 8329; // Wide range that includes common mining animations
+        return minerCounter.count(client, worldPoint);
     }
 
     /**
-     * Gets a more descriptive location name using the StarLocation enum
+     * Gets a more descriptive location name from the closest landing site
      *
      * @return User-friendly location name
      */
     public String getFormattedLocation() {
-        // Try to find a matching location from StarLocation enum
+        // Try to find the closest landing site
         WorldPoint point = getWorldPoint();
         if (point != null) {
             StarLocation closestLocation = StarLocation.getClosestLocation(point);
@@ -277,23 +252,38 @@ public class StarData {
         }
 
         // Fall back to the basic location string
-        return location;
+        return getLocation();
     }
 
-// Also modify the existing getLocationName method to use the StarLocation data:
-
-    private String getLocationName(WorldPoint worldPoint) {
-        StarLocation closestLocation = StarLocation.getClosestLocation(worldPoint);
-        if (closestLocation != null) {
-            return closestLocation.getName();
+    /**
+     * Gets the name of the landing site this star is at
+     *
+     * @return Location name, or the coordinates if no landing site is known
+     */
+    public String getLocation() {
+        StarLocation location = locationId != UNKNOWN_LOCATION ? StarLocation.fromId(locationId) : null;
+        if (location != null) {
+            return location.getName();
         }
 
         // Fall back to coordinates if no matching location
         return worldPoint.getX() + "," + worldPoint.getY();
     }
 
+    /**
+     * @return The number of miners as text, "?" if unknown
+     */
+    public String getFormattedMiners() {
+        return miners == UNKNOWN_MINERS ? "?" : Integer.toString(miners);
+    }
+
+    private static byte getLocationId(WorldPoint worldPoint) {
+        int siteId = StarLocation.getSiteId(worldPoint);
+        return siteId >= 0 ? (byte) siteId : UNKNOWN_LOCATION;
+    }
+
     public String getMessage() {
-        return "Star: W" + world + " T" + getTier() + " " + location +
+        return "Star: W" + world + " T" + getTier() + " " + getLocation() +
                 (active ? "" : " (inactive)");
     }
 
@@ -333,17 +323,7 @@ public class StarData {
         }
 
         // Count the number of miners, default to 1 if unknown
-        int numMiners = 1;
-        if (!miners.equals(UNKNOWN_MINERS)) {
-            try {
-                numMiners = Integer.parseInt(miners);
-                if (numMiners <= 0) {
-                    numMiners = 1;
-                }
-            } catch (NumberFormatException e) {
-                // Ignore, use default
-            }
-        }
+        int numMiners = miners > 0 ? miners : 1;
 
         // Rough estimate: tier size * health percentage / miners
         // This is a very simplified model and would need tuning
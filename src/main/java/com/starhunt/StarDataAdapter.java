@@ -0,0 +1,153 @@
+package com.starhunt;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import net.runelite.api.coords.WorldPoint;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads and writes {@link StarData} in the JSON wire format, where miners is a string
+ * ("?" when unknown), lastUpdate is epoch milliseconds and site is the landing site ID.
+ * The location display name is still written next to it for older clients.
+ * Neither is read back: the receiver looks the site up from worldPoint itself.
+ */
+public class StarDataAdapter extends TypeAdapter<StarData> {
+    private static final String UNKNOWN_MINERS_TEXT = "?";
+
+    private final WorldPointAdapter worldPointAdapter = new WorldPointAdapter();
+
+    @Override
+    public void write(JsonWriter out, StarData star) throws IOException {
+        if (star == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("worldPoint");
+        worldPointAdapter.write(out, star.getWorldPoint());
+        out.name("world").value(star.getWorld());
+        // Older clients only read the name, newer ones resolve the site ID themselves
+        out.name("location").value(star.getLocation());
+        if (star.getSiteId() >= 0) {
+            out.name("site").value(star.getSiteId());
+        }
+        out.name("tier").value(star.getTier());
+        out.name("health").value(star.getHealth());
+        out.name("miners").value(star.getMiners() == StarData.UNKNOWN_MINERS
+                ? UNKNOWN_MINERS_TEXT : Integer.toString(star.getMiners()));
+        if (star.getTierTicksEstimate() != null) {
+            out.name("tierTicksEstimate").beginArray();
+            for (int ticks : star.getTierTicksEstimate()) {
+                out.value(ticks);
+            }
+            out.endArray();
+        }
+        out.name("active").value(star.isActive());
+        out.name("lastUpdate").value(star.getLastUpdate());
+        if (star.getDiscoveredBy() != null) {
+            out.name("discoveredBy").value(star.getDiscoveredBy());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public StarData read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        WorldPoint worldPoint = null;
+        int world = 0;
+        int tier = -1;
+        int health = -1;
+        int miners = StarData.UNKNOWN_MINERS;
+        int[] tierTicksEstimate = null;
+        // If active isn't specified, default to true
+        boolean active = true;
+        long lastUpdate = 0;
+        String discoveredBy = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+
+            switch (name) {
+                case "worldPoint":
+                    worldPoint = worldPointAdapter.read(in);
+                    break;
+                case "world":
+                    world = in.nextInt();
+                    break;
+                case "tier":
+                    tier = in.nextInt();
+                    break;
+                case "health":
+                    health = in.nextInt();
+                    break;
+                case "miners":
+                    miners = readMiners(in);
+                    break;
+                case "tierTicksEstimate":
+                    tierTicksEstimate = readIntArray(in);
+                    break;
+                case "active":
+                    active = in.nextBoolean();
+                    break;
+                case "lastUpdate":
+                    lastUpdate = in.nextLong();
+                    break;
+                case "discoveredBy":
+                    discoveredBy = in.nextString();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        if (worldPoint == null) {
+            throw new IOException("Star data is missing worldPoint");
+        }
+
+        return new StarData(worldPoint, world, tier, health, miners,
+                tierTicksEstimate, active, lastUpdate, discoveredBy);
+    }
+
+    private static int readMiners(JsonReader in) throws IOException {
+        // Older clients send the count as a string, "?" when unknown
+        String text = in.nextString();
+        if (UNKNOWN_MINERS_TEXT.equals(text)) {
+            return StarData.UNKNOWN_MINERS;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(text));
+        } catch (NumberFormatException e) {
+            return StarData.UNKNOWN_MINERS;
+        }
+    }
+
+    private static int[] readIntArray(JsonReader in) throws IOException {
+        int[] values = new int[9];
+        int count = 0;
+        in.beginArray();
+        while (in.hasNext()) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count << 1);
+            }
+            values[count++] = in.nextInt();
+        }
+        in.endArray();
+        return Arrays.copyOf(values, count);
+    }
+}
@@ -0,0 +1,102 @@
+package com.starhunt;
+
+import lombok.Getter;
+import net.runelite.api.coords.WorldPoint;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes delta frames written by {@link StarDeltaEncoder}. The last full state of each
+ * star is kept per sending session, and deltas are applied to it only if they follow
+ * the previous sequence number. Out of order deltas are dropped until the next keyframe.
+ */
+public class StarDeltaDecoder {
+    // Forget all senders rather than growing without bound
+    private static final int MAX_SESSIONS = 256;
+    private static final int MISSING = -1;
+
+    private final Map<Integer, Session> sessions = new HashMap<>();
+    // Target for the fields of deltas that are dropped
+    private final StarData scratch = new StarData(new WorldPoint(0, 0, 0), 0,
+            -1, -1, StarData.UNKNOWN_MINERS, null, false, 1, null);
+
+    // Deltas dropped because an earlier update of the star was missed
+    @Getter
+    private long dropped;
+
+    public synchronized void reset() {
+        sessions.clear();
+    }
+
+    /**
+     * @return The full state of every star in the frame that could be brought up to date
+     * @throws IllegalArgumentException If the frame isn't a delta frame of a known version
+     */
+    public synchronized List<StarData> decode(ByteBuffer in) {
+        int count = StarFrameCodec.readHeader(in, StarFrameCodec.FRAME_DELTA);
+        int sessionId = in.getInt();
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            if (sessions.size() >= MAX_SESSIONS) {
+                sessions.clear();
+            }
+            session = new Session();
+            sessions.put(sessionId, session);
+        }
+
+        List<StarData> stars = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte kind = in.get();
+            long key = in.getLong();
+            int seq = in.getInt();
+
+            if (kind == StarDeltaEncoder.ENTRY_KEYFRAME) {
+                StarData star = StarFrameCodec.readStar(in);
+                session.put(key, star, seq);
+                stars.add(star.copy());
+                continue;
+            }
+
+            int mask = in.get() & 0xFF;
+            int slot = session.index.get(key, MISSING);
+            if (slot == MISSING || session.sequence[slot] + 1 != seq) {
+                // Skip the fields and wait for the next keyframe
+                StarFrameCodec.readFields(in, scratch, mask);
+                dropped++;
+                continue;
+            }
+
+            StarData star = session.stars[slot];
+            StarFrameCodec.readFields(in, star, mask);
+            session.sequence[slot] = seq;
+            stars.add(star.copy());
+        }
+        return stars;
+    }
+
+    private static class Session {
+        private final LongIntMap index = new LongIntMap();
+        private StarData[] stars = new StarData[16];
+        private int[] sequence = new int[16];
+        private int size;
+
+        void put(long key, StarData star, int seq) {
+            int slot = index.get(key, MISSING);
+            if (slot == MISSING) {
+                if (size == stars.length) {
+                    stars = Arrays.copyOf(stars, size << 1);
+                    sequence = Arrays.copyOf(sequence, size << 1);
+                }
+                slot = size++;
+                index.put(key, slot, MISSING);
+            }
+            stars[slot] = star;
+            sequence[slot] = seq;
+        }
+    }
+}
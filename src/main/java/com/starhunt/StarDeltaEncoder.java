@@ -0,0 +1,125 @@
+package com.starhunt;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes star updates as delta frames, sent once the server has accepted
+ * {@link StarhuntMessage#CAPABILITY_DELTA}. Each star is sent with its key and a
+ * per-star sequence number, followed either by the full star (a keyframe) or by a
+ * bitmask of the fields changed since the last send and only those fields.
+ * A keyframe is sent for the first update of a star and then every few updates,
+ * so a receiver that missed a delta catches up at the next keyframe.
+ * <p>
+ * Frame: header (4) | session (4) | entries
+ * <br>
+ * Entry: kind (1) | key (8) | sequence (4) | star, or changed fields (1) | fields
+ */
+public class StarDeltaEncoder {
+    static final int SESSION_SIZE = 4;
+    static final byte ENTRY_KEYFRAME = 0;
+    static final byte ENTRY_DELTA = 1;
+    static final int ENTRY_HEADER_SIZE = 1 + 8 + 4;
+
+    private static final int KEYFRAME_INTERVAL = 10;
+    private static final long KEYFRAME_INTERVAL_MS = 30_000;
+    // Forget all stars, forcing keyframes, rather than growing without bound
+    private static final int MAX_TRACKED = 1024;
+    private static final int MISSING = -1;
+
+    private final LongIntMap index = new LongIntMap();
+    private StarData[] lastSent = new StarData[16];
+    private int[] sequence = new int[16];
+    private int[] sinceKeyframe = new int[16];
+    private long[] keyframeAt = new long[16];
+    private int size;
+    private int session;
+
+    /**
+     * Forget what was sent and start a new session, used for every new connection
+     */
+    public synchronized void reset(int session) {
+        this.session = session;
+        clearTracked();
+    }
+
+    public synchronized ByteBuffer encode(List<StarData> stars) {
+        int count = Math.min(stars.size(), StarFrameCodec.MAX_STARS);
+        if (size + count > MAX_TRACKED) {
+            clearTracked();
+        }
+
+        long now = System.currentTimeMillis();
+        int[] slots = new int[count];
+        int[] masks = new int[count];
+        int frameSize = StarFrameCodec.HEADER_SIZE + SESSION_SIZE;
+        for (int i = 0; i < count; i++) {
+            StarData star = stars.get(i);
+            int slot = slotFor(star.getKey());
+            slots[i] = slot;
+
+            boolean keyframe = lastSent[slot] == null
+                    || sinceKeyframe[slot] >= KEYFRAME_INTERVAL
+                    || now - keyframeAt[slot] >= KEYFRAME_INTERVAL_MS;
+            // A negative mask marks a keyframe
+            masks[i] = keyframe ? -1 : StarFrameCodec.changedFields(lastSent[slot], star);
+            frameSize += ENTRY_HEADER_SIZE + (keyframe
+                    ? StarFrameCodec.starSize(star)
+                    : 1 + StarFrameCodec.fieldsSize(star, masks[i]));
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(frameSize);
+        StarFrameCodec.writeHeader(out, StarFrameCodec.FRAME_DELTA, count);
+        out.putInt(session);
+        for (int i = 0; i < count; i++) {
+            StarData star = stars.get(i);
+            int slot = slots[i];
+            int seq = ++sequence[slot];
+
+            out.put(masks[i] < 0 ? ENTRY_KEYFRAME : ENTRY_DELTA);
+            out.putLong(star.getKey());
+            out.putInt(seq);
+            if (masks[i] < 0) {
+                StarFrameCodec.writeStar(out, star);
+                sinceKeyframe[slot] = 0;
+                keyframeAt[slot] = now;
+            } else {
+                out.put((byte) masks[i]);
+                StarFrameCodec.writeFields(out, star, masks[i]);
+                sinceKeyframe[slot]++;
+            }
+            lastSent[slot] = star.copy();
+        }
+        out.flip();
+        return out;
+    }
+
+    private int slotFor(long key) {
+        int slot = index.get(key, MISSING);
+        if (slot != MISSING) {
+            return slot;
+        }
+
+        if (size == lastSent.length) {
+            int capacity = size << 1;
+            lastSent = Arrays.copyOf(lastSent, capacity);
+            sequence = Arrays.copyOf(sequence, capacity);
+            sinceKeyframe = Arrays.copyOf(sinceKeyframe, capacity);
+            keyframeAt = Arrays.copyOf(keyframeAt, capacity);
+        }
+        slot = size++;
+        lastSent[slot] = null;
+        sequence[slot] = 0;
+        sinceKeyframe[slot] = 0;
+        keyframeAt[slot] = 0;
+        index.put(key, slot, MISSING);
+        return slot;
+    }
+
+    private void clearTracked() {
+        Arrays.fill(lastSent, 0, size, null);
+        index.clear();
+        size = 0;
+    }
+}
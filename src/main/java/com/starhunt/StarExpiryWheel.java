@@ -0,0 +1,182 @@
+package com.starhunt;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Hashed timing wheel of star keys waiting to expire.
+ * Scheduling and cancelling are O(1), and advancing the wheel only visits the
+ * buckets whose time has passed, so the cost of a cleanup pass is proportional
+ * to the number of stars actually expiring rather than the number tracked.
+ */
+public class StarExpiryWheel {
+    private static final int NONE = -1;
+
+    private final long tickMs;
+    private final int wheelMask;
+    private final int[] heads;
+
+    // Entries are pooled in parallel arrays and linked into their bucket
+    private final LongIntMap entryIndex = new LongIntMap();
+    private long[] entryKey = new long[16];
+    private long[] entryDeadline = new long[16];
+    private int[] entryNext = new int[16];
+    private int[] entryPrev = new int[16];
+    private int[] entryBucket = new int[16];
+    private int freeHead = NONE;
+    private int allocated;
+    private int size;
+
+    private long currentTick;
+    private long[] expired = new long[16];
+
+    /**
+     * @param tickMs Width of a single bucket in milliseconds
+     * @param wheelSize Number of buckets, rounded up to a power of two
+     */
+    public StarExpiryWheel(long tickMs, int wheelSize) {
+        this.tickMs = tickMs;
+        int buckets = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.wheelMask = buckets - 1;
+        this.heads = new int[buckets];
+        Arrays.fill(heads, NONE);
+        this.currentTick = System.currentTimeMillis() / tickMs;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isScheduled(long key) {
+        return entryIndex.containsKey(key);
+    }
+
+    /**
+     * Schedules a key to expire at the given time, replacing any earlier schedule
+     */
+    public void schedule(long key, long deadlineMs) {
+        int entry = entryIndex.get(key, NONE);
+        if (entry == NONE) {
+            entry = allocate();
+            entryKey[entry] = key;
+            entryIndex.put(key, entry, NONE);
+            size++;
+        } else if (entryDeadline[entry] == deadlineMs) {
+            return;
+        } else {
+            unlink(entry);
+        }
+
+        entryDeadline[entry] = deadlineMs;
+        long tick = deadlineMs / tickMs;
+        if (tick < currentTick) {
+            // Already overdue, pick it up on the next advance
+            tick = currentTick;
+        }
+        link(entry, (int) (tick & wheelMask));
+    }
+
+    public void cancel(long key) {
+        int entry = entryIndex.remove(key, NONE);
+        if (entry != NONE) {
+            unlink(entry);
+            release(entry);
+            size--;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(heads, NONE);
+        entryIndex.clear();
+        freeHead = NONE;
+        allocated = 0;
+        size = 0;
+    }
+
+    /**
+     * Advances the wheel to the given time and reports every key whose deadline has passed.
+     * Expired keys are removed from the wheel before the callback runs, so the callback
+     * may freely schedule or cancel keys.
+     *
+     * @return The number of keys that expired
+     */
+    public int advance(long nowMs, LongConsumer onExpired) {
+        long nowTick = nowMs / tickMs;
+
+        // Each bucket needs to be visited at most once, even after a long pause
+        long firstTick = Math.max(currentTick, nowTick - wheelMask);
+        int count = 0;
+
+        for (long tick = firstTick; tick <= nowTick; tick++) {
+            int entry = heads[(int) (tick & wheelMask)];
+            while (entry != NONE) {
+                int next = entryNext[entry];
+                if (entryDeadline[entry] <= nowMs) {
+                    if (count == expired.length) {
+                        expired = Arrays.copyOf(expired, count << 1);
+                    }
+                    expired[count++] = entryKey[entry];
+                    entryIndex.remove(entryKey[entry], NONE);
+                    unlink(entry);
+                    release(entry);
+                    size--;
+                }
+                entry = next;
+            }
+        }
+
+        currentTick = nowTick;
+
+        for (int i = 0; i < count; i++) {
+            onExpired.accept(expired[i]);
+        }
+        return count;
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int entry = freeHead;
+            freeHead = entryNext[entry];
+            return entry;
+        }
+
+        if (allocated == entryKey.length) {
+            int capacity = allocated << 1;
+            entryKey = Arrays.copyOf(entryKey, capacity);
+            entryDeadline = Arrays.copyOf(entryDeadline, capacity);
+            entryNext = Arrays.copyOf(entryNext, capacity);
+            entryPrev = Arrays.copyOf(entryPrev, capacity);
+            entryBucket = Arrays.copyOf(entryBucket, capacity);
+        }
+        return allocated++;
+    }
+
+    private void release(int entry) {
+        entryNext[entry] = freeHead;
+        freeHead = entry;
+    }
+
+    private void link(int entry, int bucket) {
+        int head = heads[bucket];
+        entryBucket[entry] = bucket;
+        entryPrev[entry] = NONE;
+        entryNext[entry] = head;
+        if (head != NONE) {
+            entryPrev[head] = entry;
+        }
+        heads[bucket] = entry;
+    }
+
+    private void unlink(int entry) {
+        int prev = entryPrev[entry];
+        int next = entryNext[entry];
+        if (prev != NONE) {
+            entryNext[prev] = next;
+        } else {
+            heads[entryBucket[entry]] = next;
+        }
+        if (next != NONE) {
+            entryPrev[next] = prev;
+        }
+    }
+}
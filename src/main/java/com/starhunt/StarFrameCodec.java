@@ -0,0 +1,266 @@
+package com.starhunt;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed layout binary encoding of star messages, sent as websocket binary frames once
+ * the server has accepted {@link StarhuntMessage#CAPABILITY_BINARY}.
+ * <p>
+ * Frame: frame type (1) | version (1) | star count (2) | stars
+ * <br>
+ * Star: {@link StarCache} record (21) | tick estimate count (1) | tick estimates (4 each)
+ * | discoverer length (1) | discoverer (UTF-8)
+ * <p>
+ * Delta frames, see {@link StarDeltaEncoder}, reuse the star layout for keyframes and
+ * encode changed fields in the same order and widths as the star layout.
+ */
+public final class StarFrameCodec {
+    public static final int VERSION = 1;
+    static final byte FRAME_STARS = 1;
+    static final byte FRAME_DELTA = 2;
+
+    // Fields present in a delta, in the order they are written
+    static final int FIELD_TIER = 1;
+    static final int FIELD_HEALTH = 1 << 1;
+    static final int FIELD_MINERS = 1 << 2;
+    static final int FIELD_ACTIVE = 1 << 3;
+    static final int FIELD_LAST_UPDATE = 1 << 4;
+    static final int FIELD_TICKS = 1 << 5;
+    static final int FIELD_DISCOVERER = 1 << 6;
+
+    static final int HEADER_SIZE = 4;
+    private static final int MAX_COUNT = 0xFF;
+    static final int MAX_STARS = 0xFFFF;
+
+    private StarFrameCodec() {
+    }
+
+    public static ByteBuffer encode(List<StarData> stars) {
+        int count = Math.min(stars.size(), MAX_STARS);
+        int size = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            size += starSize(stars.get(i));
+        }
+
+        ByteBuffer out = ByteBuffer.allocate(size);
+        writeHeader(out, FRAME_STARS, count);
+        for (int i = 0; i < count; i++) {
+            writeStar(out, stars.get(i));
+        }
+        out.flip();
+        return out;
+    }
+
+    /**
+     * @throws IllegalArgumentException If the frame isn't a star frame of a known version
+     */
+    public static List<StarData> decode(ByteBuffer in) {
+        int count = readHeader(in, FRAME_STARS);
+        List<StarData> stars = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            stars.add(readStar(in));
+        }
+        return stars;
+    }
+
+    /**
+     * @return The frame type of a binary frame, without consuming it
+     */
+    static byte peekType(ByteBuffer in) {
+        return in.remaining() > 0 ? in.get(in.position()) : 0;
+    }
+
+    static void writeHeader(ByteBuffer out, byte type, int count) {
+        out.put(type);
+        out.put((byte) VERSION);
+        out.putShort((short) count);
+    }
+
+    /**
+     * @return The number of entries in the frame
+     */
+    static int readHeader(ByteBuffer in, byte expectedType) {
+        if (in.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("Truncated frame header");
+        }
+        byte type = in.get();
+        int version = in.get() & 0xFF;
+        if (type != expectedType || version != VERSION) {
+            throw new IllegalArgumentException("Unsupported frame type " + type + " version " + version);
+        }
+        return in.getShort() & 0xFFFF;
+    }
+
+    static int starSize(StarData star) {
+        return StarCache.RECORD_SIZE + ticksSize(star) + nameSize(star);
+    }
+
+    static void writeStar(ByteBuffer out, StarData star) {
+        StarCache.writeRecord(out, star);
+        writeTicks(out, star);
+        writeName(out, star);
+    }
+
+    static StarData readStar(ByteBuffer in) {
+        StarData star = StarCache.readRecord(in);
+        star.setTierTicksEstimate(readTicks(in));
+        star.setDiscoveredBy(readName(in));
+        return star;
+    }
+
+    /**
+     * @return The bits of the fields that differ between the two stars
+     */
+    static int changedFields(StarData previous, StarData star) {
+        int mask = 0;
+        if (previous.getTier() != star.getTier()) {
+            mask |= FIELD_TIER;
+        }
+        if (previous.getHealth() != star.getHealth()) {
+            mask |= FIELD_HEALTH;
+        }
+        if (previous.getMiners() != star.getMiners()) {
+            mask |= FIELD_MINERS;
+        }
+        if (previous.isActive() != star.isActive()) {
+            mask |= FIELD_ACTIVE;
+        }
+        if (previous.getLastUpdate() != star.getLastUpdate()) {
+            mask |= FIELD_LAST_UPDATE;
+        }
+        if (!Arrays.equals(previous.getTierTicksEstimate(), star.getTierTicksEstimate())) {
+            mask |= FIELD_TICKS;
+        }
+        if (previous.getDiscoveredBy() == null
+                ? star.getDiscoveredBy() != null
+                : !previous.getDiscoveredBy().equals(star.getDiscoveredBy())) {
+            mask |= FIELD_DISCOVERER;
+        }
+        return mask;
+    }
+
+    static int fieldsSize(StarData star, int mask) {
+        int size = 0;
+        size += (mask & FIELD_TIER) != 0 ? 1 : 0;
+        size += (mask & FIELD_HEALTH) != 0 ? 1 : 0;
+        size += (mask & FIELD_MINERS) != 0 ? 2 : 0;
+        size += (mask & FIELD_ACTIVE) != 0 ? 1 : 0;
+        size += (mask & FIELD_LAST_UPDATE) != 0 ? 8 : 0;
+        size += (mask & FIELD_TICKS) != 0 ? ticksSize(star) : 0;
+        size += (mask & FIELD_DISCOVERER) != 0 ? nameSize(star) : 0;
+        return size;
+    }
+
+    static void writeFields(ByteBuffer out, StarData star, int mask) {
+        if ((mask & FIELD_TIER) != 0) {
+            out.put((byte) star.getTier());
+        }
+        if ((mask & FIELD_HEALTH) != 0) {
+            out.put((byte) star.getHealth());
+        }
+        if ((mask & FIELD_MINERS) != 0) {
+            out.putShort((short) star.getMiners());
+        }
+        if ((mask & FIELD_ACTIVE) != 0) {
+            out.put((byte) (star.isActive() ? 1 : 0));
+        }
+        if ((mask & FIELD_LAST_UPDATE) != 0) {
+            out.putLong(star.getLastUpdate());
+        }
+        if ((mask & FIELD_TICKS) != 0) {
+            writeTicks(out, star);
+        }
+        if ((mask & FIELD_DISCOVERER) != 0) {
+            writeName(out, star);
+        }
+    }
+
+    /**
+     * Reads the fields written by {@link #writeFields} into a star
+     */
+    static void readFields(ByteBuffer in, StarData star, int mask) {
+        if ((mask & FIELD_TIER) != 0) {
+            star.setTier(in.get());
+        }
+        if ((mask & FIELD_HEALTH) != 0) {
+            star.setHealth(in.get());
+        }
+        if ((mask & FIELD_MINERS) != 0) {
+            star.setMiners(in.getShort());
+        }
+        if ((mask & FIELD_ACTIVE) != 0) {
+            star.setActive(in.get() != 0);
+        }
+        if ((mask & FIELD_LAST_UPDATE) != 0) {
+            star.setLastUpdate(in.getLong());
+        }
+        if ((mask & FIELD_TICKS) != 0) {
+            star.setTierTicksEstimate(readTicks(in));
+        }
+        if ((mask & FIELD_DISCOVERER) != 0) {
+            star.setDiscoveredBy(readName(in));
+        }
+    }
+
+    private static int tickCount(StarData star) {
+        int[] estimate = star.getTierTicksEstimate();
+        return estimate == null ? 0 : Math.min(estimate.length, MAX_COUNT);
+    }
+
+    private static int ticksSize(StarData star) {
+        return 1 + tickCount(star) * 4;
+    }
+
+    private static void writeTicks(ByteBuffer out, StarData star) {
+        int ticks = tickCount(star);
+        out.put((byte) ticks);
+        for (int t = 0; t < ticks; t++) {
+            out.putInt(star.getTierTicksEstimate()[t]);
+        }
+    }
+
+    private static int[] readTicks(ByteBuffer in) {
+        int ticks = in.get() & 0xFF;
+        if (ticks == 0) {
+            return null;
+        }
+        int[] estimate = new int[ticks];
+        for (int t = 0; t < ticks; t++) {
+            estimate[t] = in.getInt();
+        }
+        return estimate;
+    }
+
+    private static int nameSize(StarData star) {
+        return 1 + encodeName(star.getDiscoveredBy()).length;
+    }
+
+    private static void writeName(ByteBuffer out, StarData star) {
+        byte[] name = encodeName(star.getDiscoveredBy());
+        out.put((byte) name.length);
+        out.put(name);
+    }
+
+    private static String readName(ByteBuffer in) {
+        int length = in.get() & 0xFF;
+        if (length == 0) {
+            return null;
+        }
+        byte[] name = new byte[length];
+        in.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encodeName(String name) {
+        if (name == null) {
+            return new byte[0];
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        // Player names are at most 12 characters, so this never truncates in practice
+        return bytes.length <= MAX_COUNT ? bytes : Arrays.copyOf(bytes, MAX_COUNT);
+    }
+}
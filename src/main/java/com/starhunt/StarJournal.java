@@ -0,0 +1,328 @@
+package com.starhunt;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Append-only binary journal of every star update sent or received.
+ * Recording an event only encodes it into an in-memory buffer; a background task
+ * writes the buffer out to segment files, rolls segments once they are large enough
+ * and compacts old segments down to the last state of each star.
+ */
+@Slf4j
+@Singleton
+public class StarJournal {
+    private static final File JOURNAL_DIR = new File(new File(RuneLite.RUNELITE_DIR, "starhunt"), "journal");
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final int MAGIC = 0x53484A31; // "SHJ1"
+    private static final int HEADER_SIZE = 4;
+    static final int EVENT_SIZE = 8 + 1 + StarCache.RECORD_SIZE;
+
+    private static final int BUFFER_SIZE = EVENT_SIZE * 4096;
+    private static final long SEGMENT_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_CLOSED_SEGMENTS = 8;
+
+    public enum Source {
+        SENT,
+        RECEIVED
+    }
+
+    private static final Source[] SOURCES = Source.values();
+
+    /**
+     * A single journaled star update
+     */
+    @Getter
+    public static final class Event {
+        private final long timestamp;
+        private final Source source;
+        private final StarData star;
+
+        private Event(long timestamp, Source source, StarData star) {
+            this.timestamp = timestamp;
+            this.source = source;
+            this.star = star;
+        }
+    }
+
+    private final Path directory;
+    private final long segmentSize;
+
+    // Producers encode into pending; the writer swaps it with writing and drains it
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer writing = ByteBuffer.allocate(BUFFER_SIZE);
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Only used by the writer
+    private final Object writerLock = new Object();
+    private FileChannel segment;
+    private long segmentIndex;
+
+    public StarJournal() {
+        this(JOURNAL_DIR.toPath(), SEGMENT_SIZE);
+    }
+
+    /**
+     * @param segmentSize Size after which the writer rolls over to a new segment
+     */
+    StarJournal(Path directory, long segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Record a star update. Never blocks on disk; the event is dropped if the
+     * buffer is full because the writer has fallen behind.
+     */
+    public void record(StarData star, Source source) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (pending.remaining() < EVENT_SIZE) {
+                dropped.incrementAndGet();
+                return;
+            }
+            pending.putLong(now);
+            pending.put((byte) source.ordinal());
+            StarCache.writeRecord(pending, star);
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Write buffered events to disk, rolling and compacting segments as needed.
+     * Must not be called on the client thread.
+     */
+    public void flush() {
+        synchronized (writerLock) {
+            ByteBuffer batch;
+            synchronized (this) {
+                if (pending.position() == 0) {
+                    return;
+                }
+                batch = pending;
+                pending = writing;
+                writing = batch;
+            }
+
+            try {
+                FileChannel out = openSegment();
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    out.write(batch);
+                }
+
+                if (out.size() >= segmentSize) {
+                    closeSegment();
+                    segmentIndex++;
+                    compactIfNeeded();
+                }
+            } catch (IOException | RuntimeException e) {
+                // Runs on a fixed delay schedule, so anything thrown would cancel every later flush
+                log.warn("Failed to write star journal", e);
+                closeSegment();
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    public void close() {
+        flush();
+        synchronized (writerLock) {
+            closeSegment();
+        }
+    }
+
+    /**
+     * Stream every journaled event, oldest first. The writer is only held up while the
+     * segments are listed, so events written during the read may or may not be included,
+     * and segments compacted away during the read are skipped.
+     *
+     * @param consumer Receives each event in order
+     */
+    public void read(Consumer<Event> consumer) throws IOException {
+        List<Path> segments;
+        synchronized (writerLock) {
+            if (segment != null) {
+                segment.force(false);
+            }
+            segments = listSegments();
+        }
+
+        for (Path file : segments) {
+            try {
+                readSegment(file, consumer);
+            } catch (NoSuchFileException e) {
+                log.debug("Journal segment was compacted while reading: {}", file);
+            }
+        }
+    }
+
+    private void readSegment(Path file, Consumer<Event> consumer) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(EVENT_SIZE * 1024);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            in.read(header);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                log.debug("Skipping journal segment with unknown format: {}", file);
+                return;
+            }
+
+            // A partial event left at the end of the segment is ignored
+            boolean eof = false;
+            while (!eof) {
+                eof = in.read(data) < 0;
+                data.flip();
+                while (data.remaining() >= EVENT_SIZE) {
+                    long timestamp = data.getLong();
+                    int source = data.get();
+                    StarData star = StarCache.readRecord(data);
+                    if (source >= 0 && source < SOURCES.length) {
+                        consumer.accept(new Event(timestamp, SOURCES[source], star));
+                    }
+                }
+                data.compact();
+            }
+        }
+    }
+
+    private FileChannel openSegment() throws IOException {
+        if (segment == null) {
+            Files.createDirectories(directory);
+            List<Path> segments = listSegments();
+            if (!segments.isEmpty()) {
+                segmentIndex = Math.max(segmentIndex, parseIndex(segments.get(segments.size() - 1)) + 1);
+            }
+
+            segment = FileChannel.open(segmentPath(segmentIndex), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.flip();
+            segment.write(header);
+        }
+        return segment;
+    }
+
+    private void closeSegment() {
+        if (segment != null) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                log.debug("Failed to close journal segment", e);
+            }
+            segment = null;
+        }
+    }
+
+    /**
+     * Merge closed segments into a single segment holding the last event of each star
+     */
+    private void compactIfNeeded() throws IOException {
+        List<Path> closed = listSegments();
+        if (closed.size() <= MAX_CLOSED_SEGMENTS) {
+            return;
+        }
+
+        List<Event> latest = new ArrayList<>();
+        LongIntMap index = new LongIntMap();
+        for (Path file : closed) {
+            readSegment(file, event -> {
+                long key = event.getStar().getKey();
+                int i = index.get(key, -1);
+                if (i < 0) {
+                    index.put(key, latest.size(), -1);
+                    latest.add(event);
+                } else {
+                    latest.set(i, event);
+                }
+            });
+        }
+        latest.sort((a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+
+        Path target = closed.get(0);
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(EVENT_SIZE * 1024);
+            buffer.putInt(MAGIC);
+            for (Event event : latest) {
+                if (buffer.remaining() < EVENT_SIZE) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                buffer.putLong(event.getTimestamp());
+                buffer.put((byte) event.getSource().ordinal());
+                StarCache.writeRecord(buffer, event.getStar());
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (int i = 1; i < closed.size(); i++) {
+            Files.deleteIfExists(closed.get(i));
+        }
+
+        log.debug("Compacted {} journal segments into {} events", closed.size(), latest.size());
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                if (parseIndex(file) >= 0) {
+                    segments.add(file);
+                }
+            }
+        }
+        segments.sort((a, b) -> Long.compare(parseIndex(a), parseIndex(b)));
+        return segments;
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private static long parseIndex(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+}
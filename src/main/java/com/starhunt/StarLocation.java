@@ -1,28 +1,72 @@
 package com.starhunt;
 
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.coords.WorldPoint;
 
-import java.util.Arrays;
-
-public enum StarLocation {
-    CRAFTING_GUILD("Crafting Guild", new WorldPoint(2940, 3280, 0), true),
-    RIMMINGTON_MINE("Rimmington Mine", new WorldPoint(2974, 3240, 0), true),
-    LUMBRIDGE_SWAMP("Lumbridge Swamp", new WorldPoint(3228, 3186, 0), true),
-    DRAYNOR_VILLAGE_BANK("Draynor Village Bank", new WorldPoint(3092, 3243, 0), true),
-    VARROCK_EAST_MINE("Varrock East Mine", new WorldPoint(3290, 3369, 0), true),
-    BARBARIAN_VILLAGE("Barbarian Village", new WorldPoint(3082, 3420, 0), true),
-    EDGEVILLE_MONASTERY("Edgeville Monastery", new WorldPoint(3052, 3497, 0), true),
-    COOKS_GUILD("Cooks' Guild", new WorldPoint(3145, 3442, 0), true),
-    GRAND_EXCHANGE("Grand Exchange", new WorldPoint(3164, 3489, 0), true),
-    FALADOR_PARK("Falador Park", new WorldPoint(2999, 3376, 0), true),
-    DWARVEN_MINE("Dwarven Mine", new WorldPoint(3019, 3450, 0), true),
-    WILDERNESS_RUNITE_ROCKS("Wilderness Runite Rocks", new WorldPoint(3061, 3884, 0), true),
-    SOUTHERN_WILDERNESS("Southern Wilderness", new WorldPoint(3024, 3595, 0), true),
-    PORT_KHAZARD("Port Khazard", new WorldPoint(2650, 3166, 0), false),
-    YANILLE_BANK("Yanille Bank", new WorldPoint(2602, 3093, 0), false),
-    AL_KHARID_MINE("Al Kharid Mine", new WorldPoint(3295, 3300, 0), true),
-    CORSAIR_COVE("Corsair Cove", new WorldPoint(2483, 2890, 0), true);
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A star landing site. Sites are loaded from the star_locations.txt resource,
+ * and each site's ID is its position in that file.
+ * <p>
+ * Closest site lookups go through a grid of 64x64 tile cells, searching outwards
+ * from the cell of the point until no closer site can exist, and the result is
+ * cached per tile.
+ */
+@Slf4j
+public final class StarLocation {
+    private static final String RESOURCE = "star_locations.txt";
+    // Site IDs are stored in a byte, with -1 meaning unknown
+    private static final int MAX_LOCATIONS = 255;
+    private static final int CELL_SHIFT = 6;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+    private static final int NONE = -1;
+    private static final int CACHE_LIMIT = 4096;
+
+    /**
+     * Stars within this many tiles of a landing site belong to that site
+     */
+    public static final int SITE_RADIUS = 32;
+
+    private static final StarLocation[] VALUES = load();
+    private static final Map<String, StarLocation> BY_NAME = new HashMap<>();
+
+    // Grid cell to the first site in the cell, further sites are chained through GRID_NEXT
+    private static final LongIntMap GRID = new LongIntMap();
+    private static final int[] GRID_NEXT = new int[VALUES.length];
+    private static int minCellX = Integer.MAX_VALUE;
+    private static int minCellY = Integer.MAX_VALUE;
+    private static int maxCellX = Integer.MIN_VALUE;
+    private static int maxCellY = Integer.MIN_VALUE;
+
+    // Packed tile to closest site ID, guarded by itself
+    private static final LongIntMap CLOSEST_CACHE = new LongIntMap();
+
+    static {
+        for (StarLocation location : VALUES) {
+            BY_NAME.put(location.getName(), location);
+
+            int cellX = location.location.getX() >> CELL_SHIFT;
+            int cellY = location.location.getY() >> CELL_SHIFT;
+            GRID_NEXT[location.id] = GRID.put(cellKey(cellX, cellY), location.id, NONE);
+            minCellX = Math.min(minCellX, cellX);
+            minCellY = Math.min(minCellY, cellY);
+            maxCellX = Math.max(maxCellX, cellX);
+            maxCellY = Math.max(maxCellY, cellY);
+        }
+    }
+
+    @Getter
+    private final int id;
 
     @Getter
     private final String name;
@@ -33,19 +77,159 @@ public enum StarLocation {
     @Getter
     private final boolean f2p;
 
-    StarLocation(String name, WorldPoint location, boolean f2p) {
+    private StarLocation(int id, String name, WorldPoint location, boolean f2p) {
+        this.id = id;
         this.name = name;
         this.location = location;
         this.f2p = f2p;
     }
 
+    /**
+     * @return All landing sites, in ID order
+     */
+    public static StarLocation[] values() {
+        return VALUES.clone();
+    }
+
+    /**
+     * @param id ID of the location, as stored in {@link StarData#getLocationId()}
+     * @return The location with that ID, or null if there is none
+     */
+    public static StarLocation fromId(int id) {
+        int i = id & 0xFF;
+        return i < VALUES.length ? VALUES[i] : null;
+    }
+
+    /**
+     * @param name Display name of the location
+     * @return The location with that name, or null if there is none
+     */
+    public static StarLocation fromName(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * @return The landing site closest to the point, or null if there are no sites
+     */
     public static StarLocation getClosestLocation(WorldPoint point) {
-        return Arrays.stream(values())
-                .min((l1, l2) -> {
-                    int dist1 = l1.getLocation().distanceTo2D(point);
-                    int dist2 = l2.getLocation().distanceTo2D(point);
-                    return Integer.compare(dist1, dist2);
-                })
-                .orElse(null);
-    }
-}
\ No newline at end of file
+        long tile = StarRegistry.key(0, point.getX(), point.getY(), point.getPlane());
+        int id;
+        synchronized (CLOSEST_CACHE) {
+            id = CLOSEST_CACHE.get(tile, NONE);
+        }
+        if (id != NONE) {
+            return VALUES[id];
+        }
+
+        id = findClosest(point.getX(), point.getY());
+        if (id == NONE) {
+            return null;
+        }
+
+        synchronized (CLOSEST_CACHE) {
+            if (CLOSEST_CACHE.size() >= CACHE_LIMIT) {
+                CLOSEST_CACHE.clear();
+            }
+            CLOSEST_CACHE.put(tile, id, NONE);
+        }
+        return VALUES[id];
+    }
+
+    /**
+     * @return The ID of the landing site the point belongs to, or -1 if it isn't near any site
+     */
+    public static int getSiteId(WorldPoint point) {
+        StarLocation closest = getClosestLocation(point);
+        if (closest == null || closest.location.distanceTo2D(point) > SITE_RADIUS) {
+            return NONE;
+        }
+        return closest.id;
+    }
+
+    private static int findClosest(int x, int y) {
+        if (VALUES.length == 0) {
+            return NONE;
+        }
+
+        int cellX = x >> CELL_SHIFT;
+        int cellY = y >> CELL_SHIFT;
+        // Beyond this ring there are no more sites
+        int maxRing = Math.max(Math.max(Math.abs(cellX - minCellX), Math.abs(cellX - maxCellX)),
+                Math.max(Math.abs(cellY - minCellY), Math.abs(cellY - maxCellY)));
+
+        int best = NONE;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dx = -ring; dx <= ring; dx++) {
+                // Whole top and bottom rows, only the ends of the rows in between
+                int step = dx == -ring || dx == ring ? 1 : Math.max(1, ring * 2);
+                for (int dy = -ring; dy <= ring; dy += step) {
+                    for (int i = GRID.get(cellKey(cellX + dx, cellY + dy), NONE); i != NONE; i = GRID_NEXT[i]) {
+                        WorldPoint site = VALUES[i].location;
+                        int distance = Math.max(Math.abs(site.getX() - x), Math.abs(site.getY() - y));
+                        if (distance < bestDistance || (distance == bestDistance && i < best)) {
+                            best = i;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+
+            // Every site in the next ring is at least this far plus one tile away
+            if (best != NONE && bestDistance <= ring * CELL_SIZE) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private static long cellKey(int cellX, int cellY) {
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    private static StarLocation[] load() {
+        List<StarLocation> locations = new ArrayList<>();
+        try (InputStream in = StarLocation.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                log.warn("Missing {} resource, star locations will not be known", RESOURCE);
+                return new StarLocation[0];
+            }
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] fields = line.split(",", 5);
+                if (fields.length != 5) {
+                    log.warn("Ignoring invalid star location: {}", line);
+                    continue;
+                }
+                if (locations.size() == MAX_LOCATIONS) {
+                    log.warn("Ignoring star locations past the first {}", MAX_LOCATIONS);
+                    break;
+                }
+
+                try {
+                    WorldPoint point = new WorldPoint(Integer.parseInt(fields[0].trim()),
+                            Integer.parseInt(fields[1].trim()), Integer.parseInt(fields[2].trim()));
+                    boolean f2p = fields[3].trim().equals("f2p");
+                    locations.add(new StarLocation(locations.size(), fields[4].trim(), point, f2p));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring invalid star location: {}", line);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read {}", RESOURCE, e);
+        }
+        return locations.toArray(new StarLocation[0]);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,74 @@
+package com.starhunt;
+
+import net.runelite.api.NPC;
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.Arrays;
+
+/**
+ * Live index of star NPCs in the current scene by tile, kept up to date from
+ * spawn and despawn events so star verification is a single hash lookup.
+ */
+public class StarNpcIndex {
+    private static final int MISSING = -1;
+
+    private final LongIntMap index = new LongIntMap();
+    private NPC[] npcs = new NPC[16];
+    private int size;
+
+    private static long key(WorldPoint worldPoint) {
+        // The index only covers the current world
+        return StarRegistry.key(0, worldPoint.getX(), worldPoint.getY(), worldPoint.getPlane());
+    }
+
+    public void add(NPC npc) {
+        long key = key(npc.getWorldLocation());
+        int i = index.get(key, MISSING);
+        if (i != MISSING) {
+            npcs[i] = npc;
+            return;
+        }
+
+        if (size == npcs.length) {
+            npcs = Arrays.copyOf(npcs, size << 1);
+        }
+        npcs[size] = npc;
+        index.put(key, size, MISSING);
+        size++;
+    }
+
+    public void remove(NPC npc) {
+        long key = key(npc.getWorldLocation());
+        int i = index.get(key, MISSING);
+        if (i == MISSING || npcs[i] != npc) {
+            return;
+        }
+
+        index.remove(key, MISSING);
+        int last = --size;
+        if (i != last) {
+            NPC moved = npcs[last];
+            npcs[i] = moved;
+            index.put(key(moved.getWorldLocation()), i, MISSING);
+        }
+        npcs[last] = null;
+    }
+
+    /**
+     * @return The star NPC on the given tile, or null if there is none
+     */
+    public NPC get(WorldPoint worldPoint) {
+        int i = index.get(key(worldPoint), MISSING);
+        return i == MISSING ? null : npcs[i];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(npcs, 0, size, null);
+        index.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,67 @@
+package com.starhunt;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stars waiting to be sent, coalesced by key. A star queued several times before the
+ * next flush is only sent once, with the state it has at flush time.
+ * Only used from the client thread.
+ */
+public class StarOutbox {
+    private static final int MISSING = -1;
+
+    private final LongIntMap index = new LongIntMap();
+    private StarData[] pending = new StarData[16];
+    private int size;
+
+    // Updates folded into an update already pending for the same star
+    @Getter
+    private long coalesced;
+
+    /**
+     * Queue a star, replacing any pending update for the same star
+     */
+    public void add(StarData star) {
+        long key = star.getKey();
+        int i = index.get(key, MISSING);
+        if (i != MISSING) {
+            pending[i] = star;
+            coalesced++;
+            return;
+        }
+
+        if (size == pending.length) {
+            pending = Arrays.copyOf(pending, size << 1);
+        }
+        pending[size] = star;
+        index.put(key, size, MISSING);
+        size++;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The pending stars in the order they were first queued, leaving the outbox empty
+     */
+    public List<StarData> drain() {
+        List<StarData> stars = new ArrayList<>(Arrays.asList(pending).subList(0, size));
+        clear();
+        return stars;
+    }
+
+    public void clear() {
+        Arrays.fill(pending, 0, size, null);
+        index.clear();
+        size = 0;
+    }
+}
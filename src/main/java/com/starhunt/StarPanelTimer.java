@@ -61,7 +61,8 @@ public class StarPanelTimer {
     )
     public void updateHealth() {
         if (panel != null && plugin.getClient().getGameState().getState() >= net.runelite.api.GameState.LOADING.getState()) {
-            clientThread.invokeLater(() -> {
+            // Star state is only changed by the plugin's command queue
+            plugin.getStarCommands().submit(() -> {
                 // Check if we need to update any local stars
                 for (StarData star : plugin.getStars()) {
                     // Force a health update for active stars we're close to
@@ -69,16 +70,14 @@ public class StarPanelTimer {
                         int newHealth = star.getHealth();
                         if (newHealth >= 0) {
                             // Find matching network star and update health
-                            for (StarData networkStar : plugin.getNetworkStars()) {
-                                if (networkStar.getWorld() == star.getWorld() &&
-                                        networkStar.getWorldPoint().equals(star.getWorldPoint())) {
-                                    if (networkStar.getHealth() != newHealth) {
-                                        networkStar.setHealth(newHealth);
-                                        // Update panel immediately
-                                        panel.updateStars(plugin.getNetworkStars());
-                                    }
-                                    break;
-                                }
+                            StarData networkStar = plugin.findStar(star.getWorld(), star.getWorldPoint());
+                            // The network star is often the local star itself, so its health is
+                            // already up to date; compare with what the panel last rendered
+                            StarData published = networkStar != null ? plugin.findPublishedStar(networkStar) : null;
+                            if (networkStar != null && (published == null || published.getHealth() != newHealth)) {
+                                networkStar.setHealth(newHealth);
+                                // Update panel immediately
+                                panel.updateStars(plugin.refreshNetworkStar(networkStar));
                             }
                         }
                     }
@@ -0,0 +1,344 @@
+package com.starhunt;
+
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+
+/**
+ * Collection of stars keyed by world and landing site packed into a single long.
+ * Stars away from any known landing site are keyed by their tile instead.
+ * Lookup, insert and remove are O(1); stars are kept in a dense array for iteration.
+ * Stars are matched by key only, never by {@link StarData} field equality.
+ * Inactive stars are queued on an expiry wheel and dropped once they've been
+ * inactive for longer than the configured time to live.
+ * An ordered index by (last update, key) is maintained as stars are touched,
+ * so snapshots are published newest first without sorting.
+ * <p>
+ * The registry itself is not thread safe and must only be changed by a single writer.
+ * Writers call {@link #publish()} after a batch of changes to atomically swap in a new
+ * {@link StarSnapshot}, which other threads read through {@link #snapshot()} without locking.
+ */
+public class StarRegistry {
+    private static final int MISSING = -1;
+    private static final long EXPIRY_TICK_MS = 1000;
+    private static final int EXPIRY_WHEEL_SIZE = 128;
+    // Set on keys made from a landing site rather than a tile
+    private static final long SITE_KEY = 1L << 62;
+
+    private final LongIntMap index = new LongIntMap();
+    private StarData[] stars = new StarData[16];
+    private long[] orderStamps = new long[16];
+    private int size;
+
+    // Newest first, ties broken by key; ordered by the stamp recorded at the last touch
+    private final TreeSet<StarData> ordered = new TreeSet<>(this::compareOrder);
+
+    // Keys changed since the last publish; copies of all other stars are shared with the next snapshot
+    private final LongIntMap dirtyKeys = new LongIntMap();
+    private final LongIntMap publishedIndex = new LongIntMap();
+    private boolean dirty;
+    private volatile StarSnapshot snapshot = StarSnapshot.EMPTY;
+
+    private final long inactiveTtlMs;
+    private final StarExpiryWheel expiryWheel = new StarExpiryWheel(EXPIRY_TICK_MS, EXPIRY_WHEEL_SIZE);
+    private final LongConsumer expireAction = this::expire;
+    private long expiryNow;
+    private int expiredCount;
+    private LongConsumer removalListener;
+
+    private final List<StarData> view = new AbstractList<StarData>() {
+        @Override
+        public StarData get(int i) {
+            if (i >= size) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+            }
+            return stars[i];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    /**
+     * @param inactiveTtlMs How long a star may stay inactive before it is removed
+     */
+    public StarRegistry(long inactiveTtlMs) {
+        this.inactiveTtlMs = inactiveTtlMs;
+    }
+
+    /**
+     * Packs a star position into a registry key.
+     * Layout: world (16 bits) | plane (2 bits) | x (16 bits) | y (16 bits)
+     */
+    public static long key(int world, int x, int y, int plane) {
+        return ((long) (world & 0xFFFF) << 34)
+                | ((long) (plane & 0x3) << 32)
+                | ((long) (x & 0xFFFF) << 16)
+                | (y & 0xFFFF);
+    }
+
+    /**
+     * Packs a star landing site into a registry key.
+     * Layout: site flag | world (16 bits) | site ID (8 bits)
+     */
+    public static long siteKey(int world, int siteId) {
+        return SITE_KEY | ((long) (world & 0xFFFF) << 34) | (siteId & 0xFF);
+    }
+
+    /**
+     * @param siteId The landing site of the star, or -1 to key the star by its tile
+     */
+    public static long key(int world, int siteId, WorldPoint worldPoint) {
+        if (siteId >= 0) {
+            return siteKey(world, siteId);
+        }
+        return key(world, worldPoint.getX(), worldPoint.getY(), worldPoint.getPlane());
+    }
+
+    /**
+     * @return The key of the star at a point, by landing site if the point is near one
+     */
+    public static long key(int world, WorldPoint worldPoint) {
+        return key(world, StarLocation.getSiteId(worldPoint), worldPoint);
+    }
+
+    public StarData get(long key) {
+        int i = index.get(key, MISSING);
+        return i == MISSING ? null : stars[i];
+    }
+
+    public StarData get(int world, WorldPoint worldPoint) {
+        return get(key(world, worldPoint));
+    }
+
+    public boolean contains(long key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Adds a star, replacing any star already registered under the same key
+     *
+     * @return The replaced star, or null
+     */
+    public StarData put(StarData star) {
+        long key = star.getKey();
+        int i = index.get(key, MISSING);
+        if (i != MISSING) {
+            StarData previous = stars[i];
+            ordered.remove(previous);
+            stars[i] = star;
+            orderStamps[i] = star.getLastUpdate();
+            ordered.add(star);
+            touch(star);
+            return previous;
+        }
+
+        if (size == stars.length) {
+            stars = Arrays.copyOf(stars, size << 1);
+            orderStamps = Arrays.copyOf(orderStamps, size << 1);
+        }
+        stars[size] = star;
+        orderStamps[size] = star.getLastUpdate();
+        index.put(key, size, MISSING);
+        size++;
+        ordered.add(star);
+        touch(star);
+        return null;
+    }
+
+    /**
+     * Re-evaluates the ordering and expiry of a registered star after its active state or
+     * last update time changed. Inactive stars join the expiry wheel, active stars leave it.
+     */
+    public void touch(StarData star) {
+        long key = star.getKey();
+        int i = index.get(key, MISSING);
+        if (i == MISSING || stars[i] != star) {
+            return;
+        }
+
+        markDirty(key);
+
+        long stamp = star.getLastUpdate();
+        if (orderStamps[i] != stamp) {
+            // Must leave the tree under the old stamp before it is replaced
+            ordered.remove(star);
+            orderStamps[i] = stamp;
+            ordered.add(star);
+        }
+
+        if (star.isActive()) {
+            expiryWheel.cancel(key);
+        } else {
+            expiryWheel.schedule(key, star.getLastUpdate() + inactiveTtlMs);
+        }
+    }
+
+    /**
+     * @param removalListener Called with the key of every star that leaves the registry,
+     *                        whether removed, expired or cleared
+     */
+    public void setRemovalListener(LongConsumer removalListener) {
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * Removes every star that has been inactive for longer than the time to live.
+     * Only stars whose expiry is due are visited.
+     *
+     * @return The number of stars removed
+     */
+    public int expireInactive(long nowMs) {
+        expiryNow = nowMs;
+        expiredCount = 0;
+        expiryWheel.advance(nowMs, expireAction);
+        return expiredCount;
+    }
+
+    private void expire(long key) {
+        StarData star = get(key);
+        if (star == null || star.isActive()) {
+            return;
+        }
+
+        // The star may have been updated since it was scheduled, so check again
+        long deadline = star.getLastUpdate() + inactiveTtlMs;
+        if (deadline > expiryNow) {
+            expiryWheel.schedule(key, deadline);
+            return;
+        }
+
+        remove(key);
+        expiredCount++;
+    }
+
+    /**
+     * @return The removed star, or null if nothing was registered under the key
+     */
+    public StarData remove(long key) {
+        int i = index.get(key, MISSING);
+        if (i == MISSING) {
+            return null;
+        }
+
+        StarData removed = stars[i];
+        // The tree comparator looks stars up by key, so leave the tree before the index
+        ordered.remove(removed);
+        index.remove(key, MISSING);
+        expiryWheel.cancel(key);
+        markDirty(key);
+
+        int last = --size;
+        if (i != last) {
+            // Move the last star into the hole to keep the array dense
+            StarData moved = stars[last];
+            stars[i] = moved;
+            orderStamps[i] = orderStamps[last];
+            index.put(moved.getKey(), i, MISSING);
+        }
+        stars[last] = null;
+        if (removalListener != null) {
+            removalListener.accept(key);
+        }
+        return removed;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        if (removalListener != null) {
+            for (int i = 0; i < size; i++) {
+                removalListener.accept(stars[i].getKey());
+            }
+        }
+        Arrays.fill(stars, 0, size, null);
+        ordered.clear();
+        index.clear();
+        expiryWheel.clear();
+        size = 0;
+        dirty = true;
+    }
+
+    private void markDirty(long key) {
+        dirtyKeys.put(key, 1, 0);
+        dirty = true;
+    }
+
+    /**
+     * Publishes the current state as a new snapshot if anything changed since the last publish.
+     * Only stars that changed are copied; the copies of unchanged stars are shared with the
+     * previous snapshot. If nothing changed the previous snapshot is returned as is.
+     *
+     * @return The current snapshot
+     */
+    public StarSnapshot publish() {
+        StarSnapshot previous = snapshot;
+        if (!dirty) {
+            return previous;
+        }
+
+        List<StarData> previousStars = previous.getStars();
+        StarData[] next = new StarData[size];
+        int n = 0;
+        for (StarData star : ordered) {
+            long key = star.getKey();
+            int p = publishedIndex.get(key, MISSING);
+            next[n++] = p == MISSING || dirtyKeys.containsKey(key) ? star.copy() : previousStars.get(p);
+        }
+
+        publishedIndex.clear();
+        for (int i = 0; i < n; i++) {
+            publishedIndex.put(next[i].getKey(), i, MISSING);
+        }
+        dirtyKeys.clear();
+        dirty = false;
+
+        StarSnapshot published = new StarSnapshot(previous.getVersion() + 1,
+                Collections.unmodifiableList(Arrays.asList(next)));
+        snapshot = published;
+        return published;
+    }
+
+    /**
+     * @return The copy of a star in the last published snapshot, or null if it isn't in it.
+     * Like the rest of the registry, only for use by the writer.
+     */
+    public StarData getPublished(long key) {
+        int i = publishedIndex.get(key, MISSING);
+        return i == MISSING ? null : snapshot.getStars().get(i);
+    }
+
+    /**
+     * @return The most recently published snapshot, safe to read from any thread
+     */
+    public StarSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return A live, read-only list view over the registered stars in no particular order
+     */
+    public List<StarData> values() {
+        return view;
+    }
+
+    private int compareOrder(StarData a, StarData b) {
+        long keyA = a.getKey();
+        long keyB = b.getKey();
+        int byStamp = Long.compare(orderStamps[index.get(keyB, MISSING)], orderStamps[index.get(keyA, MISSING)]);
+        return byStamp != 0 ? byStamp : Long.compare(keyA, keyB);
+    }
+}
@@ -0,0 +1,218 @@
+package com.starhunt;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bounded queue of stars waiting to be written to the websocket, drained by a single
+ * sender thread. Only the latest state of each star is kept, so an update supersedes
+ * any update for the same star that is still queued.
+ * <p>
+ * Updates that change a star's tier or announce a star not sent before go in a priority
+ * lane that is drained first. When the queue is full the oldest normal update is dropped
+ * to make room. If every queued update is a priority one, a new normal update is dropped
+ * and a new priority update replaces the oldest one.
+ */
+@Slf4j
+public class StarSendQueue {
+    private static final int NONE = -1;
+    private static final int NORMAL = 0;
+    private static final int PRIORITY = 1;
+
+    private final int capacity;
+
+    // Queued stars are pooled in parallel arrays and linked into their lane in queue order
+    private final LongIntMap index = new LongIntMap();
+    private final long[] keys;
+    private final StarData[] stars;
+    private final int[] lane;
+    private final int[] next;
+    private final int[] prev;
+    private final int[] heads = {NONE, NONE};
+    private final int[] tails = {NONE, NONE};
+    private int freeHead;
+    private int size;
+
+    // Tier of each star when it was last taken by the sender, until the star is forgotten
+    private final LongIntMap sentTiers = new LongIntMap();
+
+    @Getter
+    private long superseded;
+    @Getter
+    private long dropped;
+    @Getter
+    private int maxDepth;
+
+    public StarSendQueue(int capacity) {
+        this.capacity = capacity;
+        keys = new long[capacity];
+        stars = new StarData[capacity];
+        lane = new int[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        resetFreeList();
+    }
+
+    /**
+     * Queue a copy of the star's current state
+     *
+     * @return false if the update was dropped because the queue was full
+     */
+    public synchronized boolean offer(StarData star) {
+        boolean queued = enqueue(star);
+        notifyAll();
+        return queued;
+    }
+
+    /**
+     * Queue copies of all the stars before waking the sender, so it takes them together
+     * rather than starting on the first one
+     *
+     * @return The number of updates that were not dropped
+     */
+    public synchronized int offerAll(List<StarData> batch) {
+        int queued = 0;
+        for (StarData star : batch) {
+            if (enqueue(star)) {
+                queued++;
+            }
+        }
+        notifyAll();
+        return queued;
+    }
+
+    private boolean enqueue(StarData star) {
+        StarData copy = star.copy();
+        long key = copy.getKey();
+
+        // Compared with what was actually sent, so a dropped tier change stays a priority
+        int sentTier = sentTiers.get(key, NONE);
+        int priority = sentTier == NONE || sentTier != copy.getTier() ? PRIORITY : NORMAL;
+
+        int slot = index.get(key, NONE);
+        if (slot != NONE) {
+            // Keep the queue position, but never demote an update that was a priority one
+            stars[slot] = copy;
+            superseded++;
+            if (priority == PRIORITY && lane[slot] == NORMAL) {
+                unlink(slot);
+                link(slot, PRIORITY);
+            }
+            return true;
+        }
+
+        if (size == capacity) {
+            int victim = heads[NORMAL];
+            if (victim == NONE) {
+                if (priority == NORMAL) {
+                    dropped++;
+                    return false;
+                }
+                victim = heads[PRIORITY];
+            }
+            index.remove(keys[victim], NONE);
+            unlink(victim);
+            release(victim);
+            dropped++;
+            log.debug("Star send queue is full, dropped an update ({} dropped so far)", dropped);
+        }
+
+        slot = freeHead;
+        freeHead = next[slot];
+        keys[slot] = key;
+        stars[slot] = copy;
+        index.put(key, slot, NONE);
+        link(slot, priority);
+        size++;
+        maxDepth = Math.max(maxDepth, size);
+        return true;
+    }
+
+    /**
+     * Wait for queued stars and take up to the given number, priority updates first
+     */
+    public synchronized List<StarData> take(int max) throws InterruptedException {
+        while (size == 0) {
+            wait();
+        }
+
+        List<StarData> batch = new ArrayList<>(Math.min(max, size));
+        for (int l = PRIORITY; l >= NORMAL && batch.size() < max; l--) {
+            while (heads[l] != NONE && batch.size() < max) {
+                int slot = heads[l];
+                batch.add(stars[slot]);
+                sentTiers.put(keys[slot], stars[slot].getTier(), NONE);
+                index.remove(keys[slot], NONE);
+                unlink(slot);
+                release(slot);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Forget the tier sent for a star that is no longer tracked, so the map only holds
+     * known stars. A later update of the star is a priority one again.
+     */
+    public synchronized void forget(long key) {
+        sentTiers.remove(key, NONE);
+    }
+
+    public synchronized int getDepth() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(stars, null);
+        index.clear();
+        sentTiers.clear();
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+        resetFreeList();
+    }
+
+    private void resetFreeList() {
+        for (int i = 0; i < capacity; i++) {
+            next[i] = i + 1 < capacity ? i + 1 : NONE;
+        }
+        freeHead = capacity > 0 ? 0 : NONE;
+        size = 0;
+    }
+
+    private void release(int slot) {
+        stars[slot] = null;
+        next[slot] = freeHead;
+        freeHead = slot;
+        size--;
+    }
+
+    private void link(int slot, int l) {
+        lane[slot] = l;
+        next[slot] = NONE;
+        prev[slot] = tails[l];
+        if (tails[l] != NONE) {
+            next[tails[l]] = slot;
+        } else {
+            heads[l] = slot;
+        }
+        tails[l] = slot;
+    }
+
+    private void unlink(int slot) {
+        int l = lane[slot];
+        if (prev[slot] != NONE) {
+            next[prev[slot]] = next[slot];
+        } else {
+            heads[l] = next[slot];
+        }
+        if (next[slot] != NONE) {
+            prev[next[slot]] = prev[slot];
+        } else {
+            tails[l] = prev[slot];
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.starhunt;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable, versioned view of a {@link StarRegistry} for readers on other threads.
+ * The stars are detached copies ordered most recently updated first, and must not be modified.
+ */
+public final class StarSnapshot {
+    public static final StarSnapshot EMPTY = new StarSnapshot(0, Collections.emptyList());
+
+    @Getter
+    private final long version;
+
+    @Getter
+    private final List<StarData> stars;
+
+    StarSnapshot(long version, List<StarData> stars) {
+        this.version = version;
+        this.stars = stars;
+    }
+
+    public boolean isEmpty() {
+        return stars.isEmpty();
+    }
+
+    public int size() {
+        return stars.size();
+    }
+}
@@ -13,6 +13,19 @@ public enum StarTier {
     TIER_8(41021, "Size 8"),
     TIER_9(41020, "Size 9");
 
+    public static final int UNKNOWN_SIZE = -1;
+
+    // Object IDs of all tiers fall in this range, indexed directly by ID minus the first
+    private static final int FIRST_OBJECT_ID = 41020;
+    private static final int LAST_OBJECT_ID = 41229;
+    private static final StarTier[] BY_OBJECT_ID = new StarTier[LAST_OBJECT_ID - FIRST_OBJECT_ID + 1];
+
+    static {
+        for (StarTier tier : values()) {
+            BY_OBJECT_ID[tier.objectId - FIRST_OBJECT_ID] = tier;
+        }
+    }
+
     @Getter
     private final int objectId;
 
@@ -24,12 +37,30 @@ public enum StarTier {
         this.name = name;
     }
 
+    /**
+     * @return The star size, from 1 to 9
+     */
+    public int getSize() {
+        return ordinal() + 1;
+    }
+
+    /**
+     * @return The tier of a crashed star object, or null if the object isn't a star
+     */
     public static StarTier fromObjectId(int objectId) {
-        for (StarTier tier : values()) {
-            if (tier.getObjectId() == objectId) {
-                return tier;
-            }
+        // A single unsigned compare rejects IDs on either side of the range
+        int index = objectId - FIRST_OBJECT_ID;
+        if (Integer.compareUnsigned(index, BY_OBJECT_ID.length) >= 0) {
+            return null;
         }
-        return null;
+        return BY_OBJECT_ID[index];
+    }
+
+    /**
+     * @return The star size of a crashed star object, or {@link #UNKNOWN_SIZE} if the object isn't a star
+     */
+    public static int getSize(int objectId) {
+        StarTier tier = fromObjectId(objectId);
+        return tier != null ? tier.getSize() : UNKNOWN_SIZE;
     }
-}
\ No newline at end of file
+}
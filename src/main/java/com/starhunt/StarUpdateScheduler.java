@@ -0,0 +1,83 @@
+package com.starhunt;
+
+import net.runelite.api.Client;
+import net.runelite.api.coords.WorldPoint;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Refreshes the local stars near the player that are due for a regular update and
+ * shares those that changed. Runs on the client thread every tick.
+ * Each star's update interval is scaled by a jitter multiplier so clients don't all
+ * update at the same time. The multipliers are cycled through from a table rather
+ * than drawn from a random number generator per star.
+ */
+public class StarUpdateScheduler {
+    // Must be a power of two
+    private static final int JITTER_SIZE = 64;
+
+    // Update frequency multipliers in permille
+    private final int[] jitter;
+    private int jitterIndex;
+    private final Consumer<StarData> share;
+
+    /**
+     * @param share Called with every star that changed, on the client thread
+     */
+    public StarUpdateScheduler(Consumer<StarData> share) {
+        this.share = share;
+        jitter = createJitter(new Random(System.nanoTime()));
+    }
+
+    /**
+     * Build a shuffled table of update frequency multipliers between 0.8 and 1.2, in permille.
+     * Seeded per client so different clients don't follow the same schedule.
+     */
+    private static int[] createJitter(Random random) {
+        int[] jitter = new int[JITTER_SIZE];
+        for (int i = 0; i < jitter.length; i++) {
+            jitter[i] = 800 + random.nextInt(401);
+        }
+        return jitter;
+    }
+
+    /**
+     * @param baseUpdateFrequencyMs Interval between updates of a star, before jitter
+     * @param maxUpdateDistance Stars further from the player are not updated
+     * @return The number of stars shared
+     */
+    public int updateDueStars(Client client, StarRegistry stars, MinerCounter minerCounter,
+                              StarhuntMetrics metrics, long now, int baseUpdateFrequencyMs, int maxUpdateDistance) {
+        WorldPoint playerLocation = client.getLocalPlayer().getWorldLocation();
+        int shared = 0;
+
+        // Indexed loop, the registry view would allocate an iterator every tick
+        List<StarData> localStars = stars.values();
+        for (int i = 0; i < localStars.size(); i++) {
+            StarData star = localStars.get(i);
+            if (!star.isActive() || !star.isNearby(playerLocation, maxUpdateDistance)) {
+                continue;
+            }
+
+            jitterIndex = (jitterIndex + 1) & (JITTER_SIZE - 1);
+            long updateFrequency = (long) baseUpdateFrequencyMs * jitter[jitterIndex] / 1000;
+
+            // Check if it's time for a regular update
+            if (now - star.getLastShared() < updateFrequency) {
+                continue;
+            }
+
+            long updateStart = metrics.start();
+            boolean updated = star.update(client, minerCounter);
+            metrics.record(StarhuntMetrics.Stage.STAR_UPDATE, updateStart);
+            if (updated) {
+                share.accept(star);
+                star.setLastShared(now);
+                shared++;
+            }
+        }
+        return shared;
+    }
+}
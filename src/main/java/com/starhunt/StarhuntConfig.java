@@ -90,4 +90,74 @@ public interface StarhuntConfig extends Config
 	{
 		return 10;
 	}
+
+	@ConfigItem(
+			keyName = "persistStars",
+			name = "Remember Stars",
+			description = "Whether to keep known stars on disk so they are shown again right after startup",
+			position = 7
+	)
+	default boolean persistStars()
+	{
+		return true;
+	}
+
+	@ConfigItem(
+			keyName = "journalStars",
+			name = "Star Journal",
+			description = "Whether to record every star update to a journal on disk for later analysis",
+			position = 8
+	)
+	default boolean journalStars()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+			keyName = "showDebugMetrics",
+			name = "Show Debug Metrics",
+			description = "Whether to show timing metrics for the plugin in the side panel",
+			position = 9
+	)
+	default boolean showDebugMetrics()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+			keyName = "binaryFrames",
+			name = "Binary Frames",
+			description = "Send star updates in a compact binary format if the server supports it, reconnect to apply",
+			position = 10
+	)
+	default boolean binaryFrames()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+			keyName = "compressFrames",
+			name = "Compress Frames",
+			description = "Compress messages with permessage-deflate if the server supports it, reconnect to apply",
+			position = 11
+	)
+	default boolean compressFrames()
+	{
+		return false;
+	}
+
+	@Range(
+			min = 0,
+			max = 65536
+	)
+	@ConfigItem(
+			keyName = "compressionThreshold",
+			name = "Compression Threshold",
+			description = "Messages smaller than this many bytes are sent uncompressed",
+			position = 12
+	)
+	default int compressionThreshold()
+	{
+		return 256;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.starhunt;
+
+import org.java_websocket.exceptions.InvalidDataException;
+import org.java_websocket.extensions.IExtension;
+import org.java_websocket.extensions.permessage_deflate.PerMessageDeflateExtension;
+import org.java_websocket.framing.DataFrame;
+import org.java_websocket.framing.Framedata;
+
+/**
+ * permessage-deflate that reports the time spent compressing and the bytes
+ * saved to {@link StarhuntMetrics}. Frames smaller than the threshold are sent uncompressed.
+ */
+public class StarhuntDeflateExtension extends PerMessageDeflateExtension {
+    private final StarhuntMetrics metrics;
+
+    public StarhuntDeflateExtension(StarhuntMetrics metrics, int threshold) {
+        this.metrics = metrics;
+        setThreshold(threshold);
+    }
+
+    @Override
+    public void encodeFrame(Framedata inputFrame) {
+        if (!(inputFrame instanceof DataFrame)) {
+            super.encodeFrame(inputFrame);
+            return;
+        }
+
+        int raw = inputFrame.getPayloadData().remaining();
+        long start = metrics.start();
+        super.encodeFrame(inputFrame);
+        metrics.record(StarhuntMetrics.Stage.DEFLATE, start);
+        metrics.recordBytesSent(raw, inputFrame.getPayloadData().remaining());
+    }
+
+    @Override
+    public void decodeFrame(Framedata inputFrame) throws InvalidDataException {
+        if (!(inputFrame instanceof DataFrame)) {
+            super.decodeFrame(inputFrame);
+            return;
+        }
+
+        int wire = inputFrame.getPayloadData().remaining();
+        long start = metrics.start();
+        super.decodeFrame(inputFrame);
+        metrics.record(StarhuntMetrics.Stage.INFLATE, start);
+        metrics.recordBytesReceived(wire, inputFrame.getPayloadData().remaining());
+    }
+
+    @Override
+    public IExtension copyInstance() {
+        // Each connection gets its own copy, which must keep reporting to the same metrics
+        return new StarhuntDeflateExtension(metrics, getThreshold());
+    }
+}
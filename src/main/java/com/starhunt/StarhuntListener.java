@@ -0,0 +1,13 @@
+package com.starhunt;
+
+/**
+ * Receives connection changes and star updates from {@link StarhuntSocketManager}.
+ * Methods are called on the websocket thread.
+ */
+public interface StarhuntListener {
+    void onWebsocketConnected();
+
+    void onWebsocketDisconnected();
+
+    void onStarDataReceived(StarData starData);
+}
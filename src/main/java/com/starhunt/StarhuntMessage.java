@@ -0,0 +1,69 @@
+package com.starhunt;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A message exchanged with the Starhunt server, see {@link StarhuntMessageAdapter} for the JSON form
+ */
+@Getter
+public class StarhuntMessage {
+    public enum Type {
+        STAR_UPDATE,
+        STAR_BATCH,
+        PLAYER_JOIN,
+        PLAYER_LEAVE,
+        // Capability negotiation, sent by the client on connect and answered by the server
+        HELLO,
+        HELLO_ACK
+    }
+
+    public static final int PROTOCOL_VERSION = 1;
+
+    /**
+     * Stars may be sent as binary frames, see {@link StarFrameCodec}
+     */
+    public static final int CAPABILITY_BINARY = 1;
+
+    /**
+     * Stars may be sent as delta frames, see {@link StarDeltaEncoder}. Requires {@link #CAPABILITY_BINARY}.
+     */
+    public static final int CAPABILITY_DELTA = 1 << 1;
+
+    /**
+     * Several stars may be sent in one STAR_BATCH message. Without it every star is sent
+     * as its own STAR_UPDATE, which is all that servers from before batching understand.
+     */
+    public static final int CAPABILITY_BATCH = 1 << 2;
+
+    // Null if the type isn't known to this client
+    private final Type type;
+    // Stars carried by STAR_UPDATE and STAR_BATCH messages, empty for other types
+    private final List<StarData> stars;
+    // Capability bits offered by HELLO or accepted by HELLO_ACK
+    private final int capabilities;
+
+    public StarhuntMessage(Type type, List<StarData> stars) {
+        this(type, stars, 0);
+    }
+
+    public StarhuntMessage(Type type, List<StarData> stars, int capabilities) {
+        this.type = type;
+        this.stars = stars;
+        this.capabilities = capabilities;
+    }
+
+    public static StarhuntMessage update(StarData star) {
+        return new StarhuntMessage(Type.STAR_UPDATE, Collections.singletonList(star));
+    }
+
+    public static StarhuntMessage batch(List<StarData> stars) {
+        return new StarhuntMessage(Type.STAR_BATCH, stars);
+    }
+
+    public static StarhuntMessage hello(int capabilities) {
+        return new StarhuntMessage(Type.HELLO, Collections.emptyList(), capabilities);
+    }
+}
@@ -0,0 +1,178 @@
+package com.starhunt;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads and writes {@link StarhuntMessage} as {"type": ..., "data": ...} in a single pass.
+ * STAR_UPDATE carries one star as data and STAR_BATCH an array of stars.
+ * HELLO and HELLO_ACK carry {"version": ..., "capabilities": ...}.
+ * The data of other message types is skipped.
+ * <p>
+ * Stars are decoded straight from the stream, except when data comes before type,
+ * in which case it is buffered as a tree until the type is known.
+ */
+public class StarhuntMessageAdapter extends TypeAdapter<StarhuntMessage> {
+    private final StarDataAdapter starAdapter = new StarDataAdapter();
+
+    @Override
+    public void write(JsonWriter out, StarhuntMessage message) throws IOException {
+        if (message == null) {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name("type").value(message.getType().name());
+        if (message.getType() == StarhuntMessage.Type.STAR_UPDATE) {
+            out.name("data");
+            starAdapter.write(out, message.getStars().get(0));
+        } else if (message.getType() == StarhuntMessage.Type.STAR_BATCH) {
+            out.name("data").beginArray();
+            for (StarData star : message.getStars()) {
+                starAdapter.write(out, star);
+            }
+            out.endArray();
+        } else if (isHelloType(message.getType())) {
+            out.name("data").beginObject();
+            out.name("version").value(StarhuntMessage.PROTOCOL_VERSION);
+            out.name("capabilities").value(message.getCapabilities());
+            out.endObject();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public StarhuntMessage read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        StarhuntMessage.Type type = null;
+        boolean typeRead = false;
+        List<StarData> stars = Collections.emptyList();
+        int capabilities = 0;
+        JsonElement deferredData = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "type":
+                    type = readType(in);
+                    typeRead = true;
+                    break;
+                case "data":
+                    if (typeRead && isHelloType(type)) {
+                        capabilities = readCapabilities(in);
+                    } else if (typeRead) {
+                        stars = readStars(in, type);
+                    } else {
+                        deferredData = JsonParser.parseReader(in);
+                    }
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        if (deferredData != null && isStarType(type)) {
+            stars = readStars(deferredData);
+        } else if (deferredData != null && isHelloType(type) && deferredData.isJsonObject()) {
+            JsonElement value = deferredData.getAsJsonObject().get("capabilities");
+            capabilities = value != null && value.isJsonPrimitive() ? value.getAsInt() : 0;
+        }
+        return new StarhuntMessage(type, stars, capabilities);
+    }
+
+    private static StarhuntMessage.Type readType(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        try {
+            return StarhuntMessage.Type.valueOf(in.nextString());
+        } catch (IllegalArgumentException e) {
+            // A type added to the server after this client
+            return null;
+        }
+    }
+
+    private static boolean isStarType(StarhuntMessage.Type type) {
+        return type == StarhuntMessage.Type.STAR_UPDATE || type == StarhuntMessage.Type.STAR_BATCH;
+    }
+
+    private static boolean isHelloType(StarhuntMessage.Type type) {
+        return type == StarhuntMessage.Type.HELLO || type == StarhuntMessage.Type.HELLO_ACK;
+    }
+
+    private static int readCapabilities(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_OBJECT) {
+            in.skipValue();
+            return 0;
+        }
+
+        int capabilities = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            if (in.nextName().equals("capabilities") && in.peek() == JsonToken.NUMBER) {
+                capabilities = in.nextInt();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return capabilities;
+    }
+
+    private List<StarData> readStars(JsonReader in, StarhuntMessage.Type type) throws IOException {
+        if (!isStarType(type) || in.peek() == JsonToken.NULL) {
+            in.skipValue();
+            return Collections.emptyList();
+        }
+
+        if (in.peek() == JsonToken.BEGIN_ARRAY) {
+            List<StarData> stars = new ArrayList<>();
+            in.beginArray();
+            while (in.hasNext()) {
+                StarData star = starAdapter.read(in);
+                if (star != null) {
+                    stars.add(star);
+                }
+            }
+            in.endArray();
+            return stars;
+        }
+
+        StarData star = starAdapter.read(in);
+        return star != null ? Collections.singletonList(star) : Collections.emptyList();
+    }
+
+    private List<StarData> readStars(JsonElement data) {
+        if (data.isJsonArray()) {
+            List<StarData> stars = new ArrayList<>();
+            for (JsonElement element : data.getAsJsonArray()) {
+                StarData star = starAdapter.fromJsonTree(element);
+                if (star != null) {
+                    stars.add(star);
+                }
+            }
+            return stars;
+        }
+
+        StarData star = starAdapter.fromJsonTree(data);
+        return star != null ? Collections.singletonList(star) : Collections.emptyList();
+    }
+}
@@ -0,0 +1,135 @@
+package com.starhunt;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timing histograms for the plugin's hot paths
+ */
+@Slf4j
+@Singleton
+public class StarhuntMetrics {
+    private static final File METRICS_DIR = new File(RuneLite.RUNELITE_DIR, "starhunt");
+
+    public enum Stage {
+        GAME_TICK("Game tick"),
+        VERIFY("Star verification"),
+        STAR_UPDATE("Star update / miners"),
+        JSON_ENCODE("JSON encode"),
+        JSON_DECODE("JSON decode"),
+        BINARY_ENCODE("Binary encode"),
+        BINARY_DECODE("Binary decode"),
+        DEFLATE("Deflate"),
+        INFLATE("Inflate"),
+        PANEL_REBUILD("Panel rebuild");
+
+        @Getter
+        private final String name;
+
+        Stage(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+
+    // Payload bytes of websocket data frames before and after permessage-deflate
+    private final AtomicLong rawBytesSent = new AtomicLong();
+    private final AtomicLong wireBytesSent = new AtomicLong();
+    private final AtomicLong wireBytesReceived = new AtomicLong();
+    private final AtomicLong rawBytesReceived = new AtomicLong();
+
+    public StarhuntMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @return A start time to pass to {@link #record(Stage, long)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the time elapsed since a call to {@link #start()}
+     */
+    public void record(Stage stage, long startNanos) {
+        histograms[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public void recordBytesSent(int raw, int wire) {
+        rawBytesSent.addAndGet(raw);
+        wireBytesSent.addAndGet(wire);
+    }
+
+    public void recordBytesReceived(int wire, int raw) {
+        wireBytesReceived.addAndGet(wire);
+        rawBytesReceived.addAndGet(raw);
+    }
+
+    public LatencyHistogram getHistogram(Stage stage) {
+        return histograms[stage.ordinal()];
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        rawBytesSent.set(0);
+        wireBytesSent.set(0);
+        wireBytesReceived.set(0);
+        rawBytesReceived.set(0);
+    }
+
+    /**
+     * @return One line per stage with count, p50, p99 and max in microseconds,
+     * followed by bytes sent and received before and after compression
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage stage : STAGES) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            sb.append(String.format("%-22s n=%-7d p50=%-8.1f p99=%-8.1f max=%.1f us%n",
+                    stage.getName(),
+                    histogram.getCount(),
+                    histogram.getPercentile(50) / 1000.0,
+                    histogram.getPercentile(99) / 1000.0,
+                    histogram.getMax() / 1000.0));
+        }
+        sb.append(String.format("Sent %d bytes as %d on the wire%n", rawBytesSent.get(), wireBytesSent.get()));
+        sb.append(String.format("Received %d bytes as %d on the wire%n", rawBytesReceived.get(), wireBytesReceived.get()));
+        return sb.toString();
+    }
+
+    /**
+     * Write the current summary to a timestamped file in the starhunt directory
+     *
+     * @return The file written
+     */
+    public File dump() throws IOException {
+        Files.createDirectories(METRICS_DIR.toPath());
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        File file = new File(METRICS_DIR, "metrics-" + timestamp + ".txt");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            out.println("Starhunt metrics " + timestamp);
+            out.print(summary());
+        }
+        log.info("Wrote Starhunt metrics to {}", file);
+        return file;
+    }
+}
@@ -4,7 +4,6 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.time.Duration;
-import java.time.Instant;
 import java.util.List;
 import javax.inject.Inject;
 import net.runelite.api.Client;
@@ -35,6 +34,7 @@ public class StarhuntOverlay extends OverlayPanel
     @Override
     public Dimension render(Graphics2D graphics)
     {
+        // Published snapshot, already ordered newest first
         List<StarData> stars = plugin.getNetworkStars();
         if (stars.isEmpty())
         {
@@ -62,7 +62,7 @@ public class StarhuntOverlay extends OverlayPanel
             }
 
             // Skip stars older than 1 hour
-            Duration age = Duration.between(star.getLastUpdate(), Instant.now());
+            Duration age = Duration.ofMillis(System.currentTimeMillis() - star.getLastUpdate());
             if (age.toHours() > 1)
             {
                 continue;
@@ -80,11 +80,11 @@ public class StarhuntOverlay extends OverlayPanel
                     .rightColor(getAgeColor(age))
                     .build());
 
-            if (star.getMiners() != null && !star.getMiners().equals(StarData.UNKNOWN_MINERS))
+            if (star.getMiners() != StarData.UNKNOWN_MINERS)
             {
                 panelComponent.getChildren().add(LineComponent.builder()
                         .left("    Miners:")
-                        .right(star.getMiners())
+                        .right(star.getFormattedMiners())
                         .build());
             }
 
@@ -13,10 +13,10 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.time.Duration;
-import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collection;
 import java.util.List;
 
 @Slf4j
@@ -88,18 +88,22 @@ public class StarhuntPanel extends PluginPanel {
 
     private final StarhuntPlugin plugin;
     private final StarhuntConfig config;
+    private final StarhuntMetrics metrics;
 
     private final JPanel starsContainer = new JPanel();
     private final PluginErrorPanel noStarsPanel = new PluginErrorPanel();
     private final PluginErrorPanel disconnectedPanel = new PluginErrorPanel();
     private final JLabel connectionStatusLabel = new JLabel();
+    private final JPanel metricsPanel = new JPanel();
+    private final JTextArea metricsText = new JTextArea();
 
     private final List<StarPanel> starPanels = new ArrayList<>();
 
     @Inject
-    public StarhuntPanel(StarhuntPlugin plugin, StarhuntConfig config) {
+    public StarhuntPanel(StarhuntPlugin plugin, StarhuntConfig config, StarhuntMetrics metrics) {
         this.plugin = plugin;
         this.config = config;
+        this.metrics = metrics;
 
         setBorder(new EmptyBorder(10, 10, 10, 10));
         setBackground(ColorScheme.DARK_GRAY_COLOR);
@@ -135,9 +139,39 @@ public class StarhuntPanel extends PluginPanel {
         add(header, BorderLayout.NORTH);
         add(starsContainer, BorderLayout.CENTER);
 
+        // Set up the debug metrics section, only shown when enabled in the config
+        metricsPanel.setLayout(new BorderLayout());
+        metricsText.setEditable(false);
+        metricsText.setFont(FontManager.getRunescapeSmallFont());
+        metricsText.setBackground(ColorScheme.DARKER_GRAY_COLOR);
+        metricsText.setForeground(Color.LIGHT_GRAY);
+        metricsPanel.add(metricsText, BorderLayout.CENTER);
+        JButton dumpButton = new JButton("Dump metrics");
+        dumpButton.addActionListener(e -> {
+            try {
+                metrics.dump();
+            } catch (IOException ex) {
+                log.warn("Failed to write metrics", ex);
+            }
+        });
+        metricsPanel.add(dumpButton, BorderLayout.SOUTH);
+        metricsPanel.setVisible(config.showDebugMetrics());
+        add(metricsPanel, BorderLayout.SOUTH);
+
         showNoStarsMessage();
     }
 
+    /**
+     * Refresh the debug metrics section with the latest timings
+     */
+    public void updateMetrics() {
+        boolean show = config.showDebugMetrics();
+        metricsPanel.setVisible(show);
+        if (show) {
+            metricsText.setText(metrics.summary());
+        }
+    }
+
     /**
      * Show the "no stars" message
      */
@@ -179,7 +213,21 @@ public class StarhuntPanel extends PluginPanel {
         connectionStatusLabel.repaint();
     }
 
-    public void updateStars(List<StarData> stars) {
+    /**
+     * Rebuild the star list
+     * @param stars Stars to show, expected to be ordered most recently updated first
+     */
+    public void updateStars(Collection<StarData> stars) {
+        long start = metrics.start();
+        try {
+            rebuildStars(stars);
+        } finally {
+            metrics.record(StarhuntMetrics.Stage.PANEL_REBUILD, start);
+        }
+        updateMetrics();
+    }
+
+    private void rebuildStars(Collection<StarData> stars) {
         log.debug("Updating panel with {} stars", stars.size());
 
         starsContainer.removeAll();
@@ -201,12 +249,8 @@ public class StarhuntPanel extends PluginPanel {
             return;
         }
 
-        // Sort by last update time (newest first)
-        List<StarData> sortedStars = new ArrayList<>(stars);
-        sortedStars.sort(Comparator.comparing(StarData::getLastUpdate).reversed());
-
         int displayedCount = 0;
-        for (StarData star : sortedStars) {
+        for (StarData star : stars) {
             if (star.isActive()) {
                 log.debug("Adding star panel for: W{} T{} at {}",
                         star.getWorld(), star.getTier(), star.getLocation());
@@ -259,7 +303,7 @@ public class StarhuntPanel extends PluginPanel {
             worldTierPanel.add(tierLabel);
 
             // Last update time
-            timeLabel.setText(formatTimeAgo(Duration.between(star.getLastUpdate(), Instant.now())));
+            timeLabel.setText(formatTimeAgo(Duration.ofMillis(System.currentTimeMillis() - star.getLastUpdate())));
             timeLabel.setForeground(ColorScheme.LIGHT_GRAY_COLOR);
             timeLabel.setFont(FontManager.getRunescapeSmallFont());
 
@@ -279,7 +323,7 @@ public class StarhuntPanel extends PluginPanel {
             locationLabel.setFont(FontManager.getRunescapeSmallFont());
 
             minersLabel.setIcon(MINERS_ICON);
-            minersLabel.setText("Miners: " + star.getMiners());
+            minersLabel.setText("Miners: " + star.getFormattedMiners());
             minersLabel.setForeground(Color.WHITE);
             minersLabel.setFont(FontManager.getRunescapeSmallFont());
 
@@ -4,7 +4,6 @@ import com.google.inject.Provides;
 import javax.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.*;
-import net.runelite.api.coords.LocalPoint;
 import net.runelite.api.coords.WorldPoint;
 import net.runelite.api.events.GameObjectDespawned;
 import net.runelite.api.events.GameObjectSpawned;
@@ -26,20 +25,16 @@ import net.runelite.client.util.ImageUtil;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import javax.swing.SwingUtilities;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import lombok.Getter;
 import net.runelite.client.ui.overlay.OverlayManager;
@@ -50,11 +45,16 @@ import net.runelite.client.ui.overlay.OverlayManager;
 		description = "Shares shooting star locations with other players",
 		tags = {"shooting", "star", "mining", "share"}
 )
-public class StarhuntPlugin extends Plugin
+public class StarhuntPlugin extends Plugin implements StarhuntListener
 {
 	private static final int NPC_ID = NullNpcID.NULL_10629;
 	private static final int MAX_RECONNECT_ATTEMPTS = 5;
 	private static final int RECONNECT_DELAY_MS = 5000;
+	private static final long INACTIVE_STAR_TTL_MS = 60000;
+	private static final int STAR_COMMAND_QUEUE_CAPACITY = 1024;
+	private static final long STAR_CACHE_TTL_MS = 60 * 60 * 1000;
+	private static final int JOURNAL_FLUSH_INTERVAL_MS = 1000;
+	private static final int VERIFY_SWEEP_INTERVAL_TICKS = 25;
 
 	@Inject
 	@Getter
@@ -84,22 +84,52 @@ public class StarhuntPlugin extends Plugin
 	@Inject
 	private ScheduledExecutorService executor;
 
+	@Inject
+	private StarCache starCache;
+
+	@Inject
+	private StarJournal starJournal;
+
+	@Inject
+	private StarhuntMetrics metrics;
+
+	private ScheduledFuture<?> journalFlushTask;
+
 	private NavigationButton navButton;
 	private StarhuntPanel starhuntPanel;
 
 	// Stars that we've discovered locally
-	@Getter
-	private final List<StarData> stars = new ArrayList<>();
+	private final StarRegistry stars = new StarRegistry(INACTIVE_STAR_TTL_MS);
 
 	// Stars received from the network
-	@Getter
-	private final List<StarData> networkStars = new ArrayList<>();
+	private final StarRegistry networkStars = new StarRegistry(INACTIVE_STAR_TTL_MS);
+
+	// Star NPCs in the current scene by tile
+	private final StarNpcIndex starNpcs = new StarNpcIndex();
+
+	// Star tiles that changed since the last verification
+	private final DirtyStarSet dirtyStars = new DirtyStarSet();
+
+	// Star spawns seen while the scene was loading, handled as one batch once it has loaded
+	private final List<GameObject> pendingStarObjects = new ArrayList<>();
+	private final List<NPC> pendingStarNpcs = new ArrayList<>();
 
-	// Track when we last sent updates for each star
-	private final Map<String, Long> lastStarUpdateTimes = new HashMap<>();
+	// Stars to send at the end of the tick, one update per star
+	private final StarOutbox starOutbox = new StarOutbox();
+
+	// Players around stars, rebuilt at most once per tick
+	private final MinerCounter minerCounter = new MinerCounter();
+
+	// Regular updates of nearby local stars, with jitter between clients
+	private final StarUpdateScheduler updateScheduler = new StarUpdateScheduler(this::sendStarData);
+
+	// All star state changes from other threads go through this queue and are run
+	// on the client thread, which is the only thread that modifies star state
+	@Getter
+	private final StarCommandQueue starCommands = new StarCommandQueue(STAR_COMMAND_QUEUE_CAPACITY);
 
 	private int reconnectAttempts = 0;
-	private boolean connected = false;
+	private volatile boolean connected = false;
 
 	@Provides
 	StarhuntConfig provideConfig(ConfigManager configManager)
@@ -137,9 +167,34 @@ public class StarhuntPlugin extends Plugin
 		log.debug("Added overlay to manager");
 
 		// Create panel first so we can update it with connection status
-		starhuntPanel = new StarhuntPanel(this, config);
+		starhuntPanel = new StarhuntPanel(this, config, metrics);
 		log.debug("Created StarhuntPanel instance");
 
+		// Only local stars are sent, so the send queue tracks their tiers until they expire
+		stars.setRemovalListener(socketManager.getSendQueue()::forget);
+
+		// Restore stars from the last session so the panel isn't empty until peers re-broadcast.
+		// Nothing else changes star state before the socket listener is registered.
+		if (config.persistStars()) {
+			for (StarData star : starCache.load(STAR_CACHE_TTL_MS)) {
+				networkStars.put(star);
+			}
+			networkStars.publish();
+		}
+
+		// Index star NPCs that are already spawned if we're enabled while logged in
+		clientThread.invokeLater(() -> {
+			for (NPC npc : client.getNpcs()) {
+				if (npc.getId() == NPC_ID) {
+					starNpcs.add(npc);
+				}
+			}
+		});
+
+		// Write journaled star updates in the background
+		journalFlushTask = executor.scheduleWithFixedDelay(starJournal::flush,
+				JOURNAL_FLUSH_INTERVAL_MS, JOURNAL_FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
 		// Try to connect to server, but don't block startup
 		socketManager.registerListener(this);
 		safeConnectToServer();
@@ -180,7 +235,7 @@ public class StarhuntPlugin extends Plugin
 		// Initial update with any existing stars
 		if (!networkStars.isEmpty()) {
 			log.debug("Performing initial panel update with {} existing stars", networkStars.size());
-			starhuntPanel.updateStars(networkStars);
+			starhuntPanel.updateStars(networkStars.publish().getStars());
 		} else {
 			log.debug("No existing stars for initial panel update");
 		}
@@ -201,9 +256,26 @@ public class StarhuntPlugin extends Plugin
 		// Remove navigation button
 		clientToolbar.removeNavigation(navButton);
 
+		starCommands.clear();
+		if (config.persistStars()) {
+			starCache.save(networkStars.snapshot());
+		}
+		starCache.close();
+		if (journalFlushTask != null) {
+			journalFlushTask.cancel(false);
+			journalFlushTask = null;
+		}
+		// Closed before returning, so a restart doesn't open the same segment while it's still being written
+		starJournal.close();
 		stars.clear();
+		starNpcs.clear();
+		dirtyStars.clear();
+		minerCounter.clear();
+		pendingStarObjects.clear();
+		pendingStarNpcs.clear();
+		starOutbox.clear();
 		networkStars.clear();
-		lastStarUpdateTimes.clear();
+		networkStars.publish();
 		connected = false;
 		reconnectAttempts = 0;
 	}
@@ -261,6 +333,7 @@ public class StarhuntPlugin extends Plugin
 		}
 	}
 
+	@Override
 	public void onWebsocketConnected()
 	{
 		log.info("Connected to Starhunt server");
@@ -269,11 +342,14 @@ public class StarhuntPlugin extends Plugin
 		updateConnectionStatus();
 
 		// Send any existing stars we have
-		for (StarData star : stars) {
-			sendStarData(star);
-		}
+		starCommands.submit(() -> {
+			for (StarData star : stars.values()) {
+				sendStarData(star);
+			}
+		});
 	}
 
+	@Override
 	public void onWebsocketDisconnected()
 	{
 		log.info("Disconnected from Starhunt server");
@@ -291,40 +367,37 @@ public class StarhuntPlugin extends Plugin
 		}
 	}
 
+	@Override
 	public void onStarDataReceived(StarData starData) {
 		log.debug("Received star data: W{} T{} at {}, active: {}",
 				starData.getWorld(), starData.getTier(), starData.getLocation(), starData.isActive());
 
-		// Handle incoming star data
-		clientThread.invokeLater(() -> {
+		if (config.journalStars()) {
+			starJournal.record(starData, StarJournal.Source.RECEIVED);
+		}
+
+		// Handle incoming star data on the next game tick
+		starCommands.submit(() -> {
 			if (client.getGameState() != GameState.LOGGED_IN) {
 				log.debug("Ignoring star data - client not logged in");
 				return;
 			}
 
 			// Check if we already know about this star in our network list
-			boolean found = false;
-			for (StarData existingStar : networkStars) {
-				if (existingStar.getWorld() == starData.getWorld() &&
-						existingStar.getWorldPoint().equals(starData.getWorldPoint())) {
-					// Update our existing star with new information
-					existingStar.update(starData);
-					log.debug("Updated existing star: W{} T{} at {}",
-							existingStar.getWorld(), existingStar.getTier(), existingStar.getLocation());
-					found = true;
-					break;
-				}
-			}
-
-			// Add new star if we're not tracking it yet
-			if (!found) {
-				networkStars.add(starData);
+			long key = starData.getKey();
+			StarData existingStar = networkStars.get(key);
+			if (existingStar != null) {
+				// Update our existing star with new information
+				existingStar.update(starData);
+				networkStars.touch(existingStar);
+				log.debug("Updated existing star: W{} T{} at {}",
+						existingStar.getWorld(), existingStar.getTier(), existingStar.getLocation());
+			} else {
+				// Add new star if we're not tracking it yet
+				networkStars.put(starData);
 				log.debug("Added new star to network stars list: W{} T{} at {}",
 						starData.getWorld(), starData.getTier(), starData.getLocation());
 
-				// Sort stars by last update time (newest first)
-				networkStars.sort(Comparator.comparing(StarData::getLastUpdate).reversed());
-
 				// Show notification if enabled
 				if (config.showNotifications() && starData.isActive() && starData.getTier() > 0) {
 					client.addChatMessage(
@@ -339,18 +412,12 @@ public class StarhuntPlugin extends Plugin
 
 			// If this is a star in our world, check if we need to update our local list
 			if (starData.getWorld() == client.getWorld()) {
-				boolean localFound = false;
-				for (StarData localStar : stars) {
-					if (localStar.getWorldPoint().equals(starData.getWorldPoint())) {
-						// We're already tracking this star locally
-						localFound = true;
-						break;
-					}
-				}
+				// Check it against the game world on the next verification
+				dirtyStars.mark(key);
 
-				if (!localFound && starData.isActive()) {
+				if (!stars.contains(key) && starData.isActive()) {
 					// This is a star in our world that we're not tracking locally
-					stars.add(starData);
+					stars.put(starData);
 					log.debug("Added star to local tracking list: W{} T{} at {}",
 							starData.getWorld(), starData.getTier(), starData.getLocation());
 				}
@@ -361,26 +428,64 @@ public class StarhuntPlugin extends Plugin
 			// Always update the panel when we receive any star data
 			if (starhuntPanel != null) {
 				log.debug("Updating panel with network stars");
-				starhuntPanel.updateStars(networkStars);
+				starhuntPanel.updateStars(networkStars.publish().getStars());
 			} else {
 				log.warn("Cannot update panel - starhuntPanel is null");
 			}
 		});
 	}
 
+	/**
+	 * Queue a star to be sent at the end of the tick. Sending the same star again before then
+	 * only updates what is sent.
+	 */
 	private void sendStarData(StarData star)
 	{
 		if (connected && config.shareStarData()) {
-			// Set discoverer if configured
-			if (config.shareUsername()) {
-				star.setDiscoveredBy(client.getLocalPlayer().getName());
+			prepareToSend(star);
+			starOutbox.add(star);
+		}
+	}
+
+	/**
+	 * Send everything queued since the last flush. The stars are queued together, and the
+	 * sender thread sends them as one message if the server accepts batches
+	 */
+	private void flushStarOutbox()
+	{
+		if (starOutbox.isEmpty()) {
+			return;
+		}
+
+		List<StarData> batch = starOutbox.drain();
+		if (!connected || !config.shareStarData()) {
+			return;
+		}
+
+		if (config.journalStars()) {
+			for (StarData star : batch) {
+				starJournal.record(star, StarJournal.Source.SENT);
 			}
+		}
 
-			// Set latest update time
-			star.setLastUpdate(Instant.now());
+		if (batch.size() == 1) {
+			socketManager.sendStarData(batch.get(0));
+		} else {
+			socketManager.sendStarBatch(batch);
+		}
+	}
 
-			socketManager.sendStarData(star);
+	private void prepareToSend(StarData star)
+	{
+		// Set discoverer if configured
+		if (config.shareUsername()) {
+			star.setDiscoveredBy(client.getLocalPlayer().getName());
 		}
+
+		// Set latest update time
+		star.setLastUpdate(System.currentTimeMillis());
+		stars.touch(star);
+		networkStars.touch(star);
 	}
 
 	/**
@@ -391,12 +496,47 @@ public class StarhuntPlugin extends Plugin
 	 * @return The star if found, null otherwise
 	 */
 	public StarData findStar(int world, WorldPoint worldPoint) {
-		for (StarData star : networkStars) {
-			if (star.getWorld() == world && star.getWorldPoint().equals(worldPoint)) {
-				return star;
-			}
-		}
-		return null;
+		return networkStars.get(world, worldPoint);
+	}
+
+	/**
+	 * Gets the stars that we've discovered locally
+	 *
+	 * @return Read-only view of local stars
+	 */
+	public List<StarData> getStars() {
+		return stars.values();
+	}
+
+	/**
+	 * Gets the stars received from the network
+	 *
+	 * @return The last published network stars, most recently updated first.
+	 * Safe to read from any thread, must not be modified.
+	 */
+	public List<StarData> getNetworkStars() {
+		return networkStars.snapshot().getStars();
+	}
+
+	/**
+	 * Finds what the panel currently shows for a network star. The live star may already
+	 * hold newer state, since reading the health of a star with an NPC updates it.
+	 *
+	 * @return The last published copy of the star, or null if it hasn't been published
+	 */
+	public StarData findPublishedStar(StarData star) {
+		return networkStars.getPublished(star.getKey());
+	}
+
+	/**
+	 * Records a change made to a network star on the client thread and publishes it
+	 *
+	 * @param star The changed network star
+	 * @return The newly published network stars
+	 */
+	public List<StarData> refreshNetworkStar(StarData star) {
+		networkStars.touch(star);
+		return networkStars.publish().getStars();
 	}
 
 	/**
@@ -406,7 +546,7 @@ public class StarhuntPlugin extends Plugin
 	 */
 	public List<StarData> getActiveStars() {
 		List<StarData> activeStars = new ArrayList<>();
-		for (StarData star : networkStars) {
+		for (StarData star : getNetworkStars()) {
 			if (star.isActive()) {
 				activeStars.add(star);
 			}
@@ -422,22 +562,39 @@ public class StarhuntPlugin extends Plugin
 		}
 
 		NPC npc = event.getNpc();
+		if (client.getGameState() == GameState.LOADING) {
+			// Handled together with the rest of the scene once loading finishes
+			pendingStarNpcs.add(npc);
+			return;
+		}
+
+		sendStarData(handleStarNpc(npc));
+	}
+
+	/**
+	 * Registers a star NPC that appeared in the scene
+	 *
+	 * @return The local star for the NPC
+	 */
+	private StarData handleStarNpc(NPC npc)
+	{
 		WorldPoint worldPoint = npc.getWorldLocation();
+		starNpcs.add(npc);
+		markStarDirty(worldPoint);
 
 		// Check if we already have this star
-		for (StarData star : stars) {
-			if (star.getWorldPoint().equals(worldPoint)) {
-				star.setNpc(npc);
-				star.setActive(true); // Ensure star is marked as active
-				sendStarData(star);
-				return;
-			}
+		StarData star = stars.get(client.getWorld(), worldPoint);
+		if (star != null) {
+			star.setNpc(npc);
+			star.setActive(true); // Ensure star is marked as active
+			stars.touch(star);
+			return star;
 		}
 
 		// Create new star
-		StarData star = new StarData(npc, client.getWorld());
-		stars.add(star);
-		sendStarData(star);
+		star = new StarData(npc, client.getWorld());
+		stars.put(star);
+		return star;
 	}
 
 	@Subscribe
@@ -447,7 +604,10 @@ public class StarhuntPlugin extends Plugin
 			return;
 		}
 
-		// We don't need to do anything special here as verifyLocalStars will handle the status
+		starNpcs.remove(event.getNpc());
+
+		// verifyLocalStars will update the star status on the next tick
+		markStarDirty(event.getNpc().getWorldLocation());
 	}
 
 	@Subscribe
@@ -459,26 +619,64 @@ public class StarhuntPlugin extends Plugin
 		}
 
 		GameObject obj = event.getGameObject();
+		if (client.getGameState() == GameState.LOADING) {
+			// Handled together with the rest of the scene once loading finishes
+			pendingStarObjects.add(obj);
+			return;
+		}
+
+		sendStarData(handleStarObject(obj, tier));
+	}
+
+	/**
+	 * Registers a star object that appeared in the scene, which is a new tier of the star
+	 *
+	 * @return The local star for the object
+	 */
+	private StarData handleStarObject(GameObject obj, int tier)
+	{
 		WorldPoint worldPoint = obj.getWorldLocation();
+		markStarDirty(worldPoint);
 
 		// Check if we already have this star
-		for (StarData star : stars) {
-			if (star.getWorldPoint().equals(worldPoint)) {
-				star.setObject(obj);
-				star.resetHealth();
-				star.setTier(tier);
-				// Make sure to set the star as active since a new tier has spawned
-				star.setActive(true);
-				sendStarData(star);
-				updateNetworkStar(star);
-				return;
-			}
+		StarData star = stars.get(client.getWorld(), worldPoint);
+		if (star != null) {
+			star.setObject(obj);
+			star.resetHealth();
+			star.setTier(tier);
+			// Make sure to set the star as active since a new tier has spawned
+			star.setActive(true);
+			stars.touch(star);
+			updateNetworkStar(star);
+			return star;
 		}
 
 		// Create new star
-		StarData star = new StarData(obj, client.getWorld());
-		stars.add(star);
-		sendStarData(star);
+		star = new StarData(obj, client.getWorld());
+		stars.put(star);
+		return star;
+	}
+
+	/**
+	 * Handles the star objects and NPCs that spawned while the scene was loading,
+	 * sending each star that changed once in a single batch
+	 */
+	private void processPendingSpawns()
+	{
+		if (pendingStarObjects.isEmpty() && pendingStarNpcs.isEmpty()) {
+			return;
+		}
+
+		// The outbox folds repeated stars together and sends them as one batch
+		for (GameObject obj : pendingStarObjects) {
+			sendStarData(handleStarObject(obj, StarData.getTier(obj.getId())));
+		}
+		for (NPC npc : pendingStarNpcs) {
+			sendStarData(handleStarNpc(npc));
+		}
+		pendingStarObjects.clear();
+		pendingStarNpcs.clear();
+		flushStarOutbox();
 	}
 
 	@Subscribe
@@ -489,16 +687,40 @@ public class StarhuntPlugin extends Plugin
 			return;
 		}
 
-		// We don't need to do anything special here as verifyLocalStars will handle the status
+		// verifyLocalStars will update the star status on the next tick
+		markStarDirty(event.getGameObject().getWorldLocation());
 	}
 
 	/**
-	 * Direct star verification method - called from onGameTick
-	 * Checks if stars actually exist by looking for their object IDs
+	 * Mark a star tile for verification on the next tick
+	 */
+	private void markStarDirty(WorldPoint worldPoint) {
+		dirtyStars.mark(StarRegistry.key(client.getWorld(), worldPoint));
+	}
+
+	/**
+	 * Mark every star in the current world for verification
 	 */
+	private void markAllStarsDirty() {
+		List<StarData> localStars = stars.values();
+		for (int i = 0; i < localStars.size(); i++) {
+			dirtyStars.mark(localStars.get(i).getKey());
+		}
+
+		int currentWorld = client.getWorld();
+		List<StarData> remoteStars = networkStars.values();
+		for (int i = 0; i < remoteStars.size(); i++) {
+			StarData networkStar = remoteStars.get(i);
+			if (networkStar.getWorld() == currentWorld) {
+				dirtyStars.mark(networkStar.getKey());
+			}
+		}
+	}
+
 	/**
 	 * Direct star verification method - called from onGameTick
-	 * Checks if stars actually exist by looking for their object IDs
+	 * Checks if stars marked dirty by spawn and despawn events actually exist by looking
+	 * for their object IDs. Every star is also swept periodically as a safety net.
 	 */
 	private void verifyLocalStars() {
 		// Only check when logged in
@@ -506,246 +728,250 @@ public class StarhuntPlugin extends Plugin
 			return;
 		}
 
-		// Create a list of stars to remove
-		List<StarData> starsToRemove = new ArrayList<>();
+		if (client.getTickCount() % VERIFY_SWEEP_INTERVAL_TICKS == 0) {
+			markAllStarsDirty();
+		}
+
 		boolean needsNetworkUpdate = false;
+		int currentWorld = client.getWorld();
+
+		for (int i = 0; i < dirtyStars.size(); i++) {
+			long key = dirtyStars.get(i);
+
+			StarData star = stars.get(key);
+			if (star != null) {
+				verifyLocalStar(star);
+			}
 
-		// Check each star in our local tracking list
-		for (StarData star : stars) {
-			// Get world point for this star
-			WorldPoint worldPoint = star.getWorldPoint();
+			// Also verify network stars in the current world
+			StarData networkStar = networkStars.get(key);
+			if (networkStar != null && networkStar.getWorld() == currentWorld && networkStar.isActive()) {
+				needsNetworkUpdate |= verifyNetworkStar(networkStar);
+			}
+		}
+		dirtyStars.clear();
 
-			// Convert to local point to check if it's in the scene
-			LocalPoint localPoint = LocalPoint.fromWorld(client, worldPoint);
+		// Remove local stars that have been inactive for a while
+		stars.expireInactive(System.currentTimeMillis());
 
-			// Check if this point is within the currently loaded scene
-			if (localPoint != null && localPoint.isInScene()) {
-				// Check for star objects at this location
-				Tile[][][] tiles = client.getScene().getTiles();
-				int plane = worldPoint.getPlane();
+		// Update the panel if any network stars were modified
+		if (needsNetworkUpdate && starhuntPanel != null) {
+			clientThread.invokeLater(() -> {
+				starhuntPanel.updateStars(networkStars.publish().getStars());
+			});
+		}
+	}
 
-				// Calculate scene coordinates
-				int sceneX = localPoint.getSceneX();
-				int sceneY = localPoint.getSceneY();
+	/**
+	 * @return The scene tile of the given point, or null if it isn't in the loaded scene
+	 */
+	private Tile getSceneTile(WorldPoint worldPoint) {
+		// Calculate scene coordinates directly rather than through a LocalPoint
+		int sceneX = worldPoint.getX() - client.getBaseX();
+		int sceneY = worldPoint.getY() - client.getBaseY();
+
+		// Verify coordinates are within bounds
+		if (sceneX < 0 || sceneY < 0 || sceneX >= Constants.SCENE_SIZE || sceneY >= Constants.SCENE_SIZE) {
+			return null;
+		}
 
-				// Verify coordinates are within bounds
-				if (sceneX >= 0 && sceneY >= 0 && sceneX < Constants.SCENE_SIZE && sceneY < Constants.SCENE_SIZE) {
-					Tile tile = tiles[plane][sceneX][sceneY];
+		return client.getScene().getTiles()[worldPoint.getPlane()][sceneX][sceneY];
+	}
 
-					// Skip if tile is null
-					if (tile == null) {
-						continue;
-					}
+	private void verifyLocalStar(StarData star) {
+		// Get world point for this star
+		WorldPoint worldPoint = star.getWorldPoint();
 
-					// Check for star game objects on this tile
-					boolean starFound = false;
-					if (tile.getGameObjects() != null) {
-						for (GameObject obj : tile.getGameObjects()) {
-							// Skip if null
-							if (obj == null) {
-								continue;
-							}
-
-							// Check if this is a star object
-							int tier = StarData.getTier(obj.getId());
-							if (tier > 0) {
-								// Star found!
-								starFound = true;
-
-								// Update the star data if needed
-								if (!star.isActive() || star.getTier() != tier) {
-									log.debug("Updating star at {} to tier {} (was {})",
-											worldPoint, tier, star.getTier());
-									star.setTier(tier);
-									star.setObject(obj);
-									star.setActive(true);
-									star.resetHealth();
-									sendStarData(star);
-									updateNetworkStar(star);
-								}
-								break;
-							}
-						}
-					}
+		// Stars outside the loaded scene can't be verified directly, they are kept
+		// as is until the expiry wheel drops them
+		Tile tile = getSceneTile(worldPoint);
+		if (tile == null) {
+			return;
+		}
 
-					// If no star game object was found, check for the NPC
-					if (!starFound) {
-						List<NPC> npcsAtTile = client.getNpcs().stream()
-								.filter(npc -> npc.getId() == NPC_ID && npc.getWorldLocation().equals(worldPoint))
-								.collect(Collectors.toList());
-
-						if (!npcsAtTile.isEmpty()) {
-							// Star NPC found
-							starFound = true;
-
-							// Update the star data if needed
-							if (!star.isActive() || star.getNpc() == null) {
-								log.debug("Found star NPC at {}", worldPoint);
-								star.setNpc(npcsAtTile.get(0));
-								star.setActive(true);
-								sendStarData(star);
-								updateNetworkStar(star);
-							}
-						}
-					}
+		// Check for star game objects on this tile
+		boolean starFound = false;
+		if (tile.getGameObjects() != null) {
+			for (GameObject obj : tile.getGameObjects()) {
+				// Skip if null
+				if (obj == null) {
+					continue;
+				}
 
-					// If no star found at all but it's marked active, mark it inactive
-					if (!starFound && star.isActive()) {
-						log.debug("Star at {} no longer exists in game world - marking inactive", worldPoint);
-						star.setActive(false);
-						star.setObject(null);
-						star.setNpc(null);
+				// Check if this is a star object
+				int tier = StarData.getTier(obj.getId());
+				if (tier > 0) {
+					// Star found!
+					starFound = true;
+
+					// Update the star data if needed
+					if (!star.isActive() || star.getTier() != tier) {
+						log.debug("Updating star at {} to tier {} (was {})",
+								worldPoint, tier, star.getTier());
+						star.setTier(tier);
+						star.setObject(obj);
+						star.setActive(true);
+						star.resetHealth();
+						stars.touch(star);
 						sendStarData(star);
 						updateNetworkStar(star);
-
-						// Mark for removal from local tracking after some time
-						if (star.getLastUpdate() != null) {
-							long inactiveTime = Instant.now().toEpochMilli() - star.getLastUpdate().toEpochMilli();
-							if (inactiveTime > 60000) { // 60 seconds
-								starsToRemove.add(star);
-							}
-						}
 					}
+					break;
 				}
-			} else {
-				// Star is outside loaded scene - we can't verify it directly
-				// We'll just keep it as is unless it's been inactive for a while
-				if (!star.isActive() && star.getLastUpdate() != null) {
-					long inactiveTime = Instant.now().toEpochMilli() - star.getLastUpdate().toEpochMilli();
-					if (inactiveTime > 60000) { // 60 seconds of inactivity
-						starsToRemove.add(star);
-					}
+			}
+		}
+
+		// If no star game object was found, check for the NPC
+		if (!starFound) {
+			NPC starNpc = findStarNpc(star);
+			if (starNpc != null) {
+				// Star NPC found
+				starFound = true;
+
+				// Update the star data if needed
+				if (!star.isActive() || star.getNpc() == null) {
+					log.debug("Found star NPC at {}", worldPoint);
+					star.setNpc(starNpc);
+					star.setActive(true);
+					stars.touch(star);
+					sendStarData(star);
+					updateNetworkStar(star);
 				}
 			}
 		}
 
-		// Remove stars marked for removal from local tracking
-		if (!starsToRemove.isEmpty()) {
-			stars.removeAll(starsToRemove);
+		// If no star found at all but it's marked active, mark it inactive
+		if (!starFound && star.isActive()) {
+			log.debug("Star at {} no longer exists in game world - marking inactive", worldPoint);
+			star.setActive(false);
+			star.setObject(null);
+			star.setNpc(null);
+			sendStarData(star);
+			// The expiry wheel drops it from local tracking once it's been inactive for a while
+			stars.touch(star);
+			updateNetworkStar(star);
+		}
+	}
+
+	/**
+	 * @return The star NPC on the star's tile, or on the tile its NPC was last seen on
+	 */
+	private NPC findStarNpc(StarData star) {
+		NPC starNpc = starNpcs.get(star.getWorldPoint());
+		if (starNpc == null && star.getNpc() != null) {
+			// The NPC may stand on a different tile of the landing site
+			starNpc = starNpcs.get(star.getNpc().getWorldLocation());
 		}
+		return starNpc;
+	}
 
-		// Also verify network stars in the current world
-		int currentWorld = client.getWorld();
+	/**
+	 * @return true if the network star was changed
+	 */
+	private boolean verifyNetworkStar(StarData networkStar) {
+		WorldPoint worldPoint = networkStar.getWorldPoint();
 
-		for (StarData networkStar : networkStars) {
-			// Only check stars in our current world
-			if (networkStar.getWorld() == currentWorld && networkStar.isActive()) {
-				WorldPoint worldPoint = networkStar.getWorldPoint();
-				LocalPoint localPoint = LocalPoint.fromWorld(client, worldPoint);
-
-				// If point is in the scene, verify if star exists
-				if (localPoint != null && localPoint.isInScene()) {
-					boolean starExists = false;
-
-					// Calculate scene coordinates
-					int sceneX = localPoint.getSceneX();
-					int sceneY = localPoint.getSceneY();
-					int plane = worldPoint.getPlane();
-
-					// Verify coordinates are within bounds
-					if (sceneX >= 0 && sceneY >= 0 && sceneX < Constants.SCENE_SIZE && sceneY < Constants.SCENE_SIZE) {
-						// Check the tile for star objects
-						Tile tile = client.getScene().getTiles()[plane][sceneX][sceneY];
-						if (tile != null && tile.getGameObjects() != null) {
-							for (GameObject obj : tile.getGameObjects()) {
-								if (obj != null && StarData.getTier(obj.getId()) > 0) {
-									starExists = true;
-									break;
-								}
-							}
-						}
-
-						// Check for NPCs
-						if (!starExists) {
-							starExists = client.getNpcs().stream()
-									.anyMatch(npc -> npc.getId() == NPC_ID && npc.getWorldLocation().equals(worldPoint));
-						}
-
-						// Update if status doesn't match reality
-						if (!starExists && networkStar.isActive()) {
-							log.debug("Network star at {} doesn't exist in game world - marking inactive", worldPoint);
-							networkStar.setActive(false);
-							networkStar.setLastUpdate(Instant.now());
-							needsNetworkUpdate = true;
-						}
-					}
+		// If point is in the scene, verify if star exists
+		Tile tile = getSceneTile(worldPoint);
+		if (tile == null) {
+			return false;
+		}
+
+		// Check the tile for star objects
+		boolean starExists = false;
+		if (tile.getGameObjects() != null) {
+			for (GameObject obj : tile.getGameObjects()) {
+				if (obj != null && StarData.getTier(obj.getId()) > 0) {
+					starExists = true;
+					break;
 				}
 			}
 		}
 
-		// Update the panel if any network stars were modified
-		if (needsNetworkUpdate && starhuntPanel != null) {
-			clientThread.invokeLater(() -> {
-				starhuntPanel.updateStars(networkStars);
-			});
+		// Check for NPCs
+		if (!starExists) {
+			starExists = findStarNpc(networkStar) != null;
+		}
+
+		// Stars are keyed by landing site, so the reported tile may not be the one the star is on.
+		// The local star with the same key was verified just before this one.
+		if (!starExists) {
+			StarData localStar = stars.get(networkStar.getKey());
+			starExists = localStar != null && localStar.isActive();
+		}
+
+		// Update if status doesn't match reality
+		if (!starExists) {
+			log.debug("Network star at {} doesn't exist in game world - marking inactive", worldPoint);
+			networkStar.setActive(false);
+			networkStar.setLastUpdate(System.currentTimeMillis());
+			networkStars.touch(networkStar);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Run all queued star commands. Must be called on the client thread.
+	 */
+	private void drainStarCommands() {
+		int count = starCommands.drain();
+		if (count > 0) {
+			log.debug("Ran {} star commands (depth max {}, mean latency {} us, dropped {})",
+					count, starCommands.getMaxDepth(), starCommands.getAverageLatencyNanos() / 1000,
+					starCommands.getDropped());
 		}
 	}
 
 	@Subscribe
 	public void onGameTick(GameTick tick)
 	{
+		long start = metrics.start();
+		try {
+			handleGameTick();
+			// Everything sent during the tick goes out together
+			flushStarOutbox();
+		} finally {
+			metrics.record(StarhuntMetrics.Stage.GAME_TICK, start);
+		}
+	}
+
+	private void handleGameTick()
+	{
+		// Apply star changes queued by other threads since the last tick
+		drainStarCommands();
+
 		// Run the direct star verification method
+		long verifyStart = metrics.start();
 		verifyLocalStars();
+		metrics.record(StarhuntMetrics.Stage.VERIFY, verifyStart);
+
+		// Make any changes from this tick visible to the panel and overlay
+		networkStars.publish();
 
 		// Skip update logic if not connected or no stars to update
 		if (!connected || !config.shareStarData() || stars.isEmpty()) {
 			return;
 		}
 
-		long currentTime = System.currentTimeMillis();
-		int baseUpdateFrequencyMs = config.updateFrequency() * 1000;
-
-		for (StarData star : stars) {
-			if (star.isActive() && star.isNearby(client.getLocalPlayer().getWorldLocation(), config.maxUpdateDistance())) {
-				String starId = star.getWorld() + "_" + star.getWorldPoint().getX() + "_" + star.getWorldPoint().getY();
-				Long lastUpdate = lastStarUpdateTimes.getOrDefault(starId, 0L);
-
-				// Determine if we should update based on time elapsed
-				boolean shouldUpdate = false;
-
-				// Add some jitter to prevent all clients updating at exactly the same time
-				double jitterFactor = 0.8 + (Math.random() * 0.4); // 0.8 to 1.2
-				int actualUpdateFrequency = (int)(baseUpdateFrequencyMs * jitterFactor);
-
-				// Check if it's time for a regular update
-				if (currentTime - lastUpdate >= actualUpdateFrequency) {
-					shouldUpdate = true;
-				}
-
-				if (shouldUpdate) {
-					boolean updated = star.update(client);
-					if (updated) {
-						sendStarData(star);
-						lastStarUpdateTimes.put(starId, currentTime);
-					}
-				}
-			}
-		}
+		updateScheduler.updateDueStars(client, stars, minerCounter, metrics, System.currentTimeMillis(),
+				config.updateFrequency() * 1000, config.maxUpdateDistance());
 	}
 
 	private void updateNetworkStar(StarData star) {
-		boolean found = false;
-
-		for (StarData networkStar : networkStars) {
-			if (networkStar.getWorld() == star.getWorld() &&
-					networkStar.getWorldPoint().equals(star.getWorldPoint())) {
-				networkStar.update(star);
-				found = true;
-				break;
-			}
-		}
-
-		// If not found in network stars but is valid, add it
-		if (!found && star.getTier() > 0) {
-			networkStars.add(star);
-			// Sort stars by last update time (newest first)
-			networkStars.sort(Comparator.comparing(StarData::getLastUpdate).reversed());
+		StarData networkStar = networkStars.get(star.getKey());
+		if (networkStar != null) {
+			networkStar.update(star);
+			networkStars.touch(networkStar);
+		} else if (star.getTier() > 0) {
+			// If not found in network stars but is valid, add it
+			networkStars.put(star);
 		}
 
 		// Update the panel
 		if (starhuntPanel != null) {
 			clientThread.invokeLater(() -> {
-				starhuntPanel.updateStars(networkStars);
+				starhuntPanel.updateStars(networkStars.publish().getStars());
 			});
 		}
 	}
@@ -754,7 +980,16 @@ public class StarhuntPlugin extends Plugin
 	public void onGameStateChanged(GameStateChanged event)
 	{
 		if (event.getGameState() == GameState.HOPPING || event.getGameState() == GameState.LOGIN_SCREEN) {
+			pendingStarObjects.clear();
+			pendingStarNpcs.clear();
 			stars.clear();
+			starNpcs.clear();
+			dirtyStars.clear();
+			minerCounter.clear();
+		} else if (event.getGameState() == GameState.LOGGED_IN) {
+			processPendingSpawns();
+			// A new scene may have dropped stars without any despawn event
+			markAllStarsDirty();
 		}
 	}
 
@@ -771,6 +1006,10 @@ public class StarhuntPlugin extends Plugin
 			reconnectAttempts = 0;
 			safeConnectToServer();
 		}
+
+		if (event.getKey().equals("showDebugMetrics") && starhuntPanel != null) {
+			SwingUtilities.invokeLater(starhuntPanel::updateMetrics);
+		}
 	}
 
 	@Schedule(
@@ -778,33 +1017,33 @@ public class StarhuntPlugin extends Plugin
 			unit = ChronoUnit.SECONDS
 	)
 	public void cleanupStars() {
-		// Clean up depleted tier 1 stars that have been inactive for some time
-		boolean needsUpdate = false;
-		long currentTime = Instant.now().toEpochMilli();
-
-		// Check if we need to clean up any network stars
-		Iterator<StarData> iterator = networkStars.iterator();
-		while (iterator.hasNext()) {
-			StarData star = iterator.next();
-
-			// If a star has been inactive for more than 60 seconds, remove it
-			if (!star.isActive()) {
-				long inactiveTime = currentTime - star.getLastUpdate().toEpochMilli();
-				if (inactiveTime > 60000) { // 60 seconds
-					log.debug("Removing inactive star from network stars: W{} T{} at {}",
-							star.getWorld(), star.getTier(), star.getLocation());
-					iterator.remove();
-					needsUpdate = true;
-				}
+		// Network stars are only changed on the client thread; readers use the published snapshot
+		starCommands.submit(() -> {
+			// Clean up stars that have been inactive for some time; only stars
+			// whose expiry is due are visited
+			int removed = networkStars.expireInactive(System.currentTimeMillis());
+			if (removed > 0) {
+				log.debug("Removed {} inactive stars from network stars", removed);
 			}
-		}
 
-		// If we removed any stars, update the panel
-		if (needsUpdate && starhuntPanel != null) {
+			// If we removed any stars, update the panel
+			if (removed > 0 && starhuntPanel != null) {
+				starhuntPanel.updateStars(networkStars.publish().getStars());
+			}
+		});
+
+		// Game ticks stop while logged out, so keep the queue moving from here
+		if (client.getGameState() != GameState.LOGGED_IN) {
 			clientThread.invokeLater(() -> {
-				starhuntPanel.updateStars(networkStars);
+				drainStarCommands();
+				flushStarOutbox();
 			});
 		}
+
+		// Append changed stars to the on-disk cache; snapshots are safe to read from this thread
+		if (config.persistStars()) {
+			starCache.save(networkStars.snapshot());
+		}
 	}
 
 	/**
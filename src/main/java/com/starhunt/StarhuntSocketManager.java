@@ -2,29 +2,55 @@ package com.starhunt;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import net.runelite.api.coords.WorldPoint;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.net.URI;
-import java.time.Instant;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.java_websocket.client.WebSocketClient;
+import org.java_websocket.drafts.Draft;
+import org.java_websocket.drafts.Draft_6455;
 import org.java_websocket.handshake.ServerHandshake;
 
 @Slf4j
 @Singleton
 public class StarhuntSocketManager {
+    private static final int SEND_QUEUE_CAPACITY = 256;
+    private static final int MAX_SEND_BATCH = 64;
+    // How long the sender waits for the websocket to write out what it has buffered
+    private static final long SEND_BACKOFF_MS = 50;
+    private static final long SENDER_STOP_TIMEOUT_MS = 1000;
 
     private final Gson gson;
-    private WebSocketClient client;
-    private final List<Object> listeners = new ArrayList<>();
+    // Replaced on every connect and read by the sender and websocket threads
+    private volatile WebSocketClient client;
+    // Copy on write, so messages are dispatched without locking
+    private volatile StarhuntListener[] listeners = new StarhuntListener[0];
     private boolean isConnecting = false;
+    // Capabilities offered in our HELLO and those the server accepted, reset on every connection
+    private volatile int offeredCapabilities;
+    private volatile int capabilities;
+    private final StarDeltaEncoder deltaEncoder = new StarDeltaEncoder();
+    private final StarDeltaDecoder deltaDecoder = new StarDeltaDecoder();
+    private final Random random = new Random();
+
+    // Stars are written by a dedicated sender thread, so a slow connection fills
+    // this bounded queue instead of buffering without limit inside the websocket
+    @Getter
+    private final StarSendQueue sendQueue = new StarSendQueue(SEND_QUEUE_CAPACITY);
+    // Owned rather than the shared executor, so disconnect can stop the sender and wait for it
+    private ExecutorService sender;
 
     @Inject
     private ScheduledExecutorService executor;
@@ -32,15 +58,25 @@ public class StarhuntSocketManager {
     @Inject
     private StarhuntConfig config;
 
+    @Inject
+    private StarhuntMetrics metrics;
+
     @Inject
     public StarhuntSocketManager() {
         this.gson = createGsonInstance();
     }
 
+    // For tests, which only dispatch received messages
+    StarhuntSocketManager(StarhuntMetrics metrics) {
+        this();
+        this.metrics = metrics;
+    }
+
     private Gson createGsonInstance() {
         return new GsonBuilder()
                 .registerTypeAdapter(WorldPoint.class, new WorldPointAdapter())
-                .registerTypeAdapter(Instant.class, new InstantAdapter())
+                .registerTypeAdapter(StarData.class, new StarDataAdapter())
+                .registerTypeAdapter(StarhuntMessage.class, new StarhuntMessageAdapter())
                 .create();
     }
 
@@ -65,12 +101,13 @@ public class StarhuntSocketManager {
         log.info("Connecting to WebSocket server: {}", serverUri);
 
         try {
-            client = new WebSocketClient(serverUri) {
+            client = new WebSocketClient(serverUri, createDraft()) {
                 @Override
                 public void onOpen(ServerHandshake handshakedata) {
                     log.info("Connected to Starhunt server");
                     isConnecting = false;
-                    notifyListeners("onWebsocketConnected");
+                    negotiateCapabilities();
+                    notifyConnected();
                 }
 
                 @Override
@@ -79,11 +116,18 @@ public class StarhuntSocketManager {
                     handleMessage(message);
                 }
 
+                @Override
+                public void onMessage(ByteBuffer bytes) {
+                    handleBinaryMessage(bytes);
+                }
+
                 @Override
                 public void onClose(int code, String reason, boolean remote) {
                     log.info("Disconnected from Starhunt server: {} (code: {})", reason, code);
                     isConnecting = false;
-                    notifyListeners("onWebsocketDisconnected");
+                    capabilities = 0;
+                    sendQueue.clear();
+                    notifyDisconnected();
                 }
 
                 @Override
@@ -100,6 +144,8 @@ public class StarhuntSocketManager {
                 }
             }, 30, 30, TimeUnit.SECONDS);
 
+            startSender();
+
             // Connect asynchronously to prevent blocking the main thread
             client.connectBlocking(2, TimeUnit.SECONDS);
             return true;
@@ -110,46 +156,217 @@ public class StarhuntSocketManager {
         }
     }
 
+    private Draft createDraft() {
+        if (!config.compressFrames()) {
+            return new Draft_6455();
+        }
+        // Falls back to uncompressed frames if the server doesn't accept the extension
+        return new Draft_6455(new StarhuntDeflateExtension(metrics, config.compressionThreshold()));
+    }
+
     public boolean isConnected() {
-        return client != null && client.isOpen();
+        WebSocketClient current = client;
+        return current != null && current.isOpen();
     }
 
     public void disconnect() {
-        if (client != null && client.isOpen()) {
-            client.close();
+        WebSocketClient current = client;
+        if (current != null && current.isOpen()) {
+            current.close();
         }
         isConnecting = false;
+        stopSender();
     }
 
+    /**
+     * Queue a star to be sent by the sender thread
+     */
     public void sendStarData(StarData star) {
-        if (client == null || !client.isOpen()) {
+        if (!isConnected()) {
             log.debug("Cannot send star data: WebSocket not connected");
             return;
         }
+        sendQueue.offer(star);
+    }
+
+    /**
+     * @return Whether the server accepted STAR_BATCH messages on this connection
+     */
+    public boolean supportsBatches() {
+        return (capabilities & StarhuntMessage.CAPABILITY_BATCH) != 0;
+    }
 
+    /**
+     * Queue several stars at once, so the sender takes them together. They are sent in a
+     * single STAR_BATCH message only if the server accepted {@link StarhuntMessage#CAPABILITY_BATCH}.
+     */
+    public void sendStarBatch(List<StarData> stars) {
+        if (!isConnected()) {
+            log.debug("Cannot send star batch: WebSocket not connected");
+            return;
+        }
+        sendQueue.offerAll(stars);
+    }
+
+    private synchronized void startSender() {
+        if (sender != null) {
+            return;
+        }
+        sender = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "starhunt-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sender.execute(this::runSender);
+    }
+
+    /**
+     * Interrupt the sender and wait for it to finish the message it is writing
+     */
+    private synchronized void stopSender() {
+        if (sender != null) {
+            sender.shutdownNow();
+            try {
+                if (!sender.awaitTermination(SENDER_STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    log.warn("Star sender did not stop within {} ms", SENDER_STOP_TIMEOUT_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sender = null;
+        }
+        sendQueue.clear();
+    }
+
+    /**
+     * @return Whether several stars can go in one message: binary frames carry any
+     * number of stars, JSON needs STAR_BATCH
+     */
+    private boolean canBatch() {
+        return (capabilities & StarhuntMessage.CAPABILITY_BINARY) != 0 || supportsBatches();
+    }
+
+    private void runSender() {
+        long reportedDrops = 0;
         try {
-            // Create a message payload
-            MessagePayload payload = new MessagePayload();
-            payload.setType(MessageType.STAR_UPDATE);
-            payload.setData(star);
-
-            String message = gson.toJson(payload);
-            log.debug("Sending star data: {}", message);
-            client.send(message);
+            while (!Thread.currentThread().isInterrupted()) {
+                // Unbatched stars are taken one at a time so queued updates can still be superseded
+                List<StarData> batch = sendQueue.take(canBatch() ? MAX_SEND_BATCH : 1);
+
+                // Let the websocket write out earlier messages first, meanwhile new
+                // updates supersede queued ones or are dropped once the queue is full
+                WebSocketClient current = client;
+                while (current != null && current.isOpen() && current.hasBufferedData()) {
+                    Thread.sleep(SEND_BACKOFF_MS);
+                }
+
+                if (batch.size() == 1) {
+                    sendStars(StarhuntMessage.update(batch.get(0)));
+                } else if (canBatch()) {
+                    sendStars(StarhuntMessage.batch(batch));
+                } else {
+                    // The connection changed since the stars were taken
+                    for (StarData star : batch) {
+                        sendStars(StarhuntMessage.update(star));
+                    }
+                }
+
+                long drops = sendQueue.getDropped();
+                if (drops != reportedDrops) {
+                    log.debug("Star send queue depth {} (max {}), {} dropped, {} superseded",
+                            sendQueue.getDepth(), sendQueue.getMaxDepth(), drops, sendQueue.getSuperseded());
+                    reportedDrops = drops;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sendStars(StarhuntMessage message) {
+        WebSocketClient current = client;
+        if (current == null || !current.isOpen()) {
+            log.debug("Cannot send star data: WebSocket not connected");
+            return;
+        }
+
+        try {
+            int binary = StarhuntMessage.CAPABILITY_BINARY;
+            int delta = binary | StarhuntMessage.CAPABILITY_DELTA;
+            if ((capabilities & binary) == binary) {
+                long start = metrics.start();
+                ByteBuffer frame = (capabilities & delta) == delta
+                        ? deltaEncoder.encode(message.getStars())
+                        : StarFrameCodec.encode(message.getStars());
+                metrics.record(StarhuntMetrics.Stage.BINARY_ENCODE, start);
+                log.debug("Sending {} stars in a {} byte binary frame", message.getStars().size(), frame.remaining());
+                current.send(frame);
+                return;
+            }
+
+            long start = metrics.start();
+            String json = gson.toJson(message, StarhuntMessage.class);
+            metrics.record(StarhuntMetrics.Stage.JSON_ENCODE, start);
+            log.debug("Sending star data: {}", json);
+            current.send(json);
         } catch (Exception e) {
             log.error("Failed to send star data", e);
         }
     }
 
-    private void handleMessage(String message) {
+    /**
+     * Offer batching and the optional protocol features enabled in the config. Until the
+     * server acknowledges them, and with servers that never do, every star is sent as its
+     * own JSON STAR_UPDATE message.
+     */
+    private void negotiateCapabilities() {
+        capabilities = 0;
+        offeredCapabilities = StarhuntMessage.CAPABILITY_BATCH;
+        if (config.binaryFrames()) {
+            offeredCapabilities |= StarhuntMessage.CAPABILITY_BINARY | StarhuntMessage.CAPABILITY_DELTA;
+        }
+        // Receivers track deltas per session, so every connection starts a new one
+        deltaEncoder.reset(random.nextInt());
+        deltaDecoder.reset();
+
         try {
-            MessagePayload payload = gson.fromJson(message, MessagePayload.class);
+            client.send(gson.toJson(StarhuntMessage.hello(offeredCapabilities), StarhuntMessage.class));
+        } catch (Exception e) {
+            log.warn("Failed to send capabilities, falling back to JSON", e);
+        }
+    }
 
-            if (payload.getType() == MessageType.STAR_UPDATE) {
-                log.debug("Received STAR_UPDATE message");
-                StarData star = gson.fromJson(gson.toJson(payload.getData()), StarData.class);
-                log.debug("Parsed star data: W{} T{} at {}", star.getWorld(), star.getTier(), star.getLocation());
+    void handleBinaryMessage(ByteBuffer bytes) {
+        try {
+            long start = metrics.start();
+            List<StarData> stars = StarFrameCodec.peekType(bytes) == StarFrameCodec.FRAME_DELTA
+                    ? deltaDecoder.decode(bytes)
+                    : StarFrameCodec.decode(bytes);
+            metrics.record(StarhuntMetrics.Stage.BINARY_DECODE, start);
+            log.debug("Received binary frame with {} stars", stars.size());
+            for (StarData star : stars) {
                 notifyListenersWithStar(star);
+            }
+        } catch (Exception e) {
+            log.error("Failed to parse binary message of {} bytes", bytes.remaining(), e);
+        }
+    }
+
+    void handleMessage(String message) {
+        try {
+            long start = metrics.start();
+            StarhuntMessage payload = gson.fromJson(message, StarhuntMessage.class);
+            metrics.record(StarhuntMetrics.Stage.JSON_DECODE, start);
+
+            if (payload.getType() == StarhuntMessage.Type.STAR_UPDATE
+                    || payload.getType() == StarhuntMessage.Type.STAR_BATCH) {
+                log.debug("Received {} message with {} stars", payload.getType(), payload.getStars().size());
+                for (StarData star : payload.getStars()) {
+                    notifyListenersWithStar(star);
+                }
+            } else if (payload.getType() == StarhuntMessage.Type.HELLO_ACK) {
+                capabilities = payload.getCapabilities() & offeredCapabilities;
+                log.info("Server accepted capabilities: {}", capabilities);
             } else {
                 log.debug("Received message with type: {}", payload.getType());
             }
@@ -158,69 +375,61 @@ public class StarhuntSocketManager {
         }
     }
 
-    public void registerListener(Object listener) {
-        if (!listeners.contains(listener)) {
-            listeners.add(listener);
-            log.debug("Registered listener: {}", listener.getClass().getSimpleName());
+    public synchronized void registerListener(StarhuntListener listener) {
+        for (StarhuntListener registered : listeners) {
+            if (registered == listener) {
+                return;
+            }
         }
+
+        StarhuntListener[] next = Arrays.copyOf(listeners, listeners.length + 1);
+        next[listeners.length] = listener;
+        listeners = next;
+        log.debug("Registered listener: {}", listener.getClass().getSimpleName());
     }
 
-    public void unregisterListener(Object listener) {
-        listeners.remove(listener);
-        log.debug("Unregistered listener: {}", listener.getClass().getSimpleName());
+    public synchronized void unregisterListener(StarhuntListener listener) {
+        StarhuntListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                StarhuntListener[] next = new StarhuntListener[current.length - 1];
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                listeners = next;
+                log.debug("Unregistered listener: {}", listener.getClass().getSimpleName());
+                return;
+            }
+        }
     }
 
-    private void notifyListeners(String methodName) {
-        log.debug("Notifying {} listeners with method: {}", listeners.size(), methodName);
-        for (Object listener : listeners) {
+    private void notifyConnected() {
+        for (StarhuntListener listener : listeners) {
             try {
-                listener.getClass().getMethod(methodName).invoke(listener);
+                listener.onWebsocketConnected();
             } catch (Exception e) {
-                log.error("Failed to notify listener {} with method {}",
-                        listener.getClass().getSimpleName(), methodName, e);
+                log.error("Failed to notify listener {} of connection", listener.getClass().getSimpleName(), e);
             }
         }
     }
 
-    private void notifyListenersWithStar(StarData star) {
-        log.debug("Notifying {} listeners with star data: W{} T{} at {}",
-                listeners.size(), star.getWorld(), star.getTier(), star.getLocation());
-
-        for (Object listener : listeners) {
+    private void notifyDisconnected() {
+        for (StarhuntListener listener : listeners) {
             try {
-                listener.getClass().getMethod("onStarDataReceived", StarData.class).invoke(listener, star);
-                log.debug("Successfully notified listener: {}", listener.getClass().getSimpleName());
+                listener.onWebsocketDisconnected();
             } catch (Exception e) {
-                log.error("Failed to notify listener {} with star data",
-                        listener.getClass().getSimpleName(), e);
+                log.error("Failed to notify listener {} of disconnection", listener.getClass().getSimpleName(), e);
             }
         }
     }
 
-    private enum MessageType {
-        STAR_UPDATE,
-        PLAYER_JOIN,
-        PLAYER_LEAVE
-    }
-
-    private static class MessagePayload {
-        private MessageType type;
-        private Object data;
-
-        public MessageType getType() {
-            return type;
-        }
-
-        public void setType(MessageType type) {
-            this.type = type;
-        }
-
-        public Object getData() {
-            return data;
-        }
-
-        public void setData(Object data) {
-            this.data = data;
+    void notifyListenersWithStar(StarData star) {
+        for (StarhuntListener listener : listeners) {
+            try {
+                listener.onStarDataReceived(star);
+            } catch (Exception e) {
+                log.error("Failed to notify listener {} with star data",
+                        listener.getClass().getSimpleName(), e);
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,83 @@
+package com.starhunt;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void smallValuesAreExact() {
+        for (long value = 0; value < 16; value++) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            histogram.record(1_000_000);
+            assertEquals(value, histogram.getPercentile(50));
+        }
+    }
+
+    @Test
+    public void percentileIsUpperBoundOfBucket() {
+        for (int exponent = 4; exponent < 62; exponent++) {
+            for (long value : new long[]{1L << exponent, (1L << exponent) + 1, (3L << exponent) - 1}) {
+                LatencyHistogram histogram = new LatencyHistogram();
+                histogram.record(value);
+                histogram.record(Long.MAX_VALUE);
+
+                long bound = histogram.getPercentile(50);
+                assertTrue(value + " reported as " + bound, bound >= value);
+                // 16 buckets per power of two
+                assertTrue(value + " reported as " + bound, bound - value < value / 16 + 1);
+            }
+        }
+    }
+
+    @Test
+    public void percentileNeverExceedsMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        assertEquals(1000, histogram.getPercentile(99.9));
+        assertEquals(1000, histogram.getMax());
+    }
+
+    @Test
+    public void largestValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(Long.MAX_VALUE - 1);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+        assertEquals(2, histogram.getCount());
+    }
+
+    @Test
+    public void percentilesSplitTheCounts() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        long p50 = histogram.getPercentile(50);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(p50 >= 50_000 && p50 < 50_000 * 17 / 16);
+        assertTrue(p99 >= 99_000 && p99 <= 100_000);
+        assertEquals(50_500, histogram.getMean());
+    }
+
+    @Test
+    public void negativeDurationsCountAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.getPercentile(100));
+        assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    public void reset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+}
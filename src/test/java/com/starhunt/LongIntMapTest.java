@@ -0,0 +1,83 @@
+package com.starhunt;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LongIntMapTest {
+    private static final int MISSING = -1;
+
+    @Test
+    public void putGetAndOverwrite() {
+        LongIntMap map = new LongIntMap();
+        assertEquals(MISSING, map.put(42L, 1, MISSING));
+        assertEquals(1, map.put(42L, 2, MISSING));
+        assertEquals(2, map.get(42L, MISSING));
+        assertEquals(MISSING, map.get(43L, MISSING));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        LongIntMap map = new LongIntMap();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i * 31L, i, MISSING);
+        }
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, map.get(i * 31L, MISSING));
+        }
+    }
+
+    @Test
+    public void removeKeepsCollidingKeysReachable() {
+        // A small map over a narrow key range gives long probe chains that wrap around the table
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            LongIntMap map = new LongIntMap();
+            Map<Long, Integer> expected = new HashMap<>();
+            for (int op = 0; op < 200; op++) {
+                long key = random.nextInt(48) - 24;
+                if (random.nextInt(3) == 0) {
+                    Integer removed = expected.remove(key);
+                    assertEquals(removed == null ? MISSING : removed, map.remove(key, MISSING));
+                } else {
+                    Integer previous = expected.put(key, op);
+                    assertEquals(previous == null ? MISSING : previous, map.put(key, op, MISSING));
+                }
+
+                assertEquals(expected.size(), map.size());
+                for (long k = -24; k < 24; k++) {
+                    Integer value = expected.get(k);
+                    assertEquals(value == null ? MISSING : value, map.get(k, MISSING));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void removeMissingKey() {
+        LongIntMap map = new LongIntMap();
+        map.put(1L, 1, MISSING);
+        assertEquals(MISSING, map.remove(2L, MISSING));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void clear() {
+        LongIntMap map = new LongIntMap();
+        map.put(1L, 1, MISSING);
+        map.put(2L, 2, MISSING);
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(1L));
+        map.put(1L, 3, MISSING);
+        assertEquals(3, map.get(1L, MISSING));
+    }
+}
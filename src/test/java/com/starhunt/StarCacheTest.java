@@ -0,0 +1,177 @@
+package com.starhunt;
+
+import net.runelite.api.coords.WorldPoint;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.starhunt.StarFrameCodecTest.assertStarEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StarCacheTest {
+    private static final long TTL_MS = 60_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+    private long now;
+
+    @Before
+    public void setUp() {
+        path = folder.getRoot().toPath().resolve("starhunt").resolve("stars.cache");
+        now = System.currentTimeMillis();
+    }
+
+    private StarData star(int world, int health) {
+        return new StarData(new WorldPoint(3000 + world, 3100, 0), world, 6, health, 2,
+                null, true, now, null);
+    }
+
+    private static StarSnapshot snapshot(StarData... stars) {
+        return new StarSnapshot(1, Arrays.asList(stars));
+    }
+
+    private List<StarData> load() {
+        List<StarData> loaded = new StarCache(path).load(TTL_MS);
+        loaded.sort(Comparator.comparingInt(StarData::getWorld));
+        return loaded;
+    }
+
+    private long fileSize(int records) {
+        return 4 + (long) records * StarCache.RECORD_SIZE;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        StarData located = new StarData(StarLocation.fromId(0).getLocation(), 301, 9, 100,
+                StarData.UNKNOWN_MINERS, null, true, now, null);
+        StarData unlocated = star(302, 45);
+        StarCache cache = new StarCache(path);
+        cache.save(snapshot(located, unlocated));
+        cache.close();
+
+        // Header, then 21 bytes per star
+        assertEquals(21, StarCache.RECORD_SIZE);
+        assertEquals(fileSize(2), Files.size(path));
+
+        List<StarData> loaded = load();
+        assertEquals(2, loaded.size());
+        assertStarEquals(located, loaded.get(0));
+        assertStarEquals(unlocated, loaded.get(1));
+    }
+
+    @Test
+    public void appendsOnlyChangedStars() throws IOException {
+        StarData first = star(301, 80);
+        StarData second = star(302, 80);
+        StarData changed = star(302, 60);
+        StarCache cache = new StarCache(path);
+        cache.save(snapshot(first, second));
+        cache.save(snapshot(first, changed));
+        cache.close();
+
+        assertEquals(fileSize(3), Files.size(path));
+        List<StarData> loaded = load();
+        assertEquals(2, loaded.size());
+        assertStarEquals(first, loaded.get(0));
+        assertStarEquals(changed, loaded.get(1));
+    }
+
+    @Test
+    public void appendsAfterReopening() throws IOException {
+        StarCache cache = new StarCache(path);
+        cache.save(snapshot(star(301, 80)));
+        cache.close();
+
+        cache = new StarCache(path);
+        cache.save(snapshot(star(301, 70), star(302, 90)));
+        cache.close();
+
+        assertEquals(fileSize(3), Files.size(path));
+        List<StarData> loaded = load();
+        assertEquals(2, loaded.size());
+        assertEquals(70, loaded.get(0).getHealth());
+        assertEquals(90, loaded.get(1).getHealth());
+    }
+
+    @Test
+    public void dropsTruncatedRecord() throws IOException {
+        StarCache cache = new StarCache(path);
+        cache.save(snapshot(star(301, 80), star(302, 80), star(303, 80)));
+        cache.close();
+
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            file.truncate(file.size() - 5);
+        }
+        List<StarData> loaded = load();
+        assertEquals(2, loaded.size());
+        assertEquals(301, loaded.get(0).getWorld());
+        assertEquals(302, loaded.get(1).getWorld());
+
+        // The partial record is cut off before appending
+        cache = new StarCache(path);
+        cache.save(snapshot(star(304, 80)));
+        cache.close();
+        assertEquals(fileSize(3), Files.size(path));
+        assertEquals(3, load().size());
+    }
+
+    @Test
+    public void ignoresUnknownFormat() throws IOException {
+        Files.createDirectories(path.getParent());
+        Files.write(path, new byte[]{1, 2, 3, 4, 5, 6});
+        assertTrue(load().isEmpty());
+
+        // Overwritten on the next save
+        StarCache cache = new StarCache(path);
+        cache.save(snapshot(star(301, 80)));
+        cache.close();
+        assertEquals(fileSize(1), Files.size(path));
+        assertEquals(1, load().size());
+    }
+
+    @Test
+    public void dropsStaleAndInactiveStars() {
+        StarData stale = new StarData(new WorldPoint(3301, 3100, 0), 301, 6, 80, 2,
+                null, true, now - TTL_MS - 1000, null);
+        StarData inactive = new StarData(new WorldPoint(3302, 3100, 0), 302, 6, 80, 2,
+                null, false, now, null);
+        StarData live = star(303, 80);
+        StarCache cache = new StarCache(path);
+        cache.save(snapshot(stale, inactive, live));
+        cache.close();
+
+        List<StarData> loaded = load();
+        assertEquals(1, loaded.size());
+        assertStarEquals(live, loaded.get(0));
+    }
+
+    @Test
+    public void compactsToLiveStars() throws IOException {
+        StarCache cache = new StarCache(path);
+        StarData star = null;
+        for (int health = 0; health < 300; health++) {
+            star = star(301, health % 100);
+            cache.save(snapshot(star));
+        }
+        cache.close();
+
+        // Rewritten once the records far outnumber the live stars
+        assertTrue(Files.size(path) < fileSize(300));
+        List<StarData> loaded = load();
+        assertEquals(1, loaded.size());
+        assertStarEquals(star, loaded.get(0));
+    }
+}
@@ -0,0 +1,117 @@
+package com.starhunt;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.runelite.api.coords.WorldPoint;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StarDataAdapterTest {
+    private final StarDataAdapter adapter = new StarDataAdapter();
+
+    // As written by clients from before the adapter, through Gson reflection and InstantAdapter
+    private static String legacyJson(StarLocation site, String miners) {
+        WorldPoint point = site.getLocation();
+        return "{\"worldPoint\":{\"x\":" + point.getX() + ",\"y\":" + point.getY() + ",\"plane\":0},"
+                + "\"world\":302,\"location\":\"" + site.getName() + "\",\"tier\":6,\"health\":75,"
+                + "\"miners\":\"" + miners + "\",\"tierTicksEstimate\":[10,20,30],\"active\":false,"
+                + "\"lastUpdate\":1700000000123,\"discoveredBy\":\"Zezima\"}";
+    }
+
+    @Test
+    public void readsLegacyFormat() throws IOException {
+        StarLocation site = StarLocation.fromId(1);
+        StarData star = adapter.fromJson(legacyJson(site, "4"));
+
+        assertEquals(site.getLocation(), star.getWorldPoint());
+        assertEquals(302, star.getWorld());
+        assertEquals(site.getId(), star.getSiteId());
+        assertEquals(site.getName(), star.getLocation());
+        assertEquals(6, star.getTier());
+        assertEquals(75, star.getHealth());
+        assertEquals(4, star.getMiners());
+        assertArrayEquals(new int[]{10, 20, 30}, star.getTierTicksEstimate());
+        assertFalse(star.isActive());
+        assertEquals(1700000000123L, star.getLastUpdate());
+        assertEquals("Zezima", star.getDiscoveredBy());
+    }
+
+    @Test
+    public void readsUnknownMinersAndMissingFields() throws IOException {
+        StarData star = adapter.fromJson(legacyJson(StarLocation.fromId(0), "?"));
+        assertEquals(StarData.UNKNOWN_MINERS, star.getMiners());
+
+        StarData minimal = adapter.fromJson("{\"worldPoint\":{\"x\":10,\"y\":20,\"plane\":1},\"world\":301,"
+                + "\"location\":null,\"tierTicksEstimate\":null,\"discoveredBy\":null}");
+        assertEquals(new WorldPoint(10, 20, 1), minimal.getWorldPoint());
+        assertEquals(-1, minimal.getSiteId());
+        assertEquals(-1, minimal.getTier());
+        assertEquals(StarData.UNKNOWN_MINERS, minimal.getMiners());
+        assertNull(minimal.getTierTicksEstimate());
+        assertTrue(minimal.isActive());
+        assertTrue(minimal.getLastUpdate() > 0);
+        assertNull(minimal.getDiscoveredBy());
+    }
+
+    @Test
+    public void siteIsLookedUpFromWorldPoint() throws IOException {
+        StarLocation site = StarLocation.fromId(1);
+        StarLocation other = StarLocation.fromId(2);
+        WorldPoint point = site.getLocation();
+        StarData star = adapter.fromJson("{\"worldPoint\":{\"x\":" + point.getX() + ",\"y\":" + point.getY()
+                + ",\"plane\":0},\"world\":301,"
+                + "\"location\":\"" + other.getName() + "\",\"site\":" + other.getId() + "}");
+        assertEquals(site.getId(), star.getSiteId());
+        assertEquals(site.getName(), star.getLocation());
+
+        StarData away = adapter.fromJson("{\"worldPoint\":{\"x\":1,\"y\":1,\"plane\":0},\"world\":301,"
+                + "\"location\":\"" + other.getName() + "\",\"site\":" + other.getId() + "}");
+        assertEquals(-1, away.getSiteId());
+        assertEquals(StarRegistry.key(301, new WorldPoint(1, 1, 0)), away.getKey());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsStarWithoutWorldPoint() throws IOException {
+        adapter.fromJson("{\"world\":301,\"tier\":5}");
+    }
+
+    @Test
+    public void writesFieldsInLegacyTypes() {
+        StarLocation site = StarLocation.fromId(1);
+        StarData star = new StarData(site.getLocation(), 302, 6, 75, 4,
+                new int[]{10, 20}, true, 1700000000123L, "Zezima");
+
+        JsonObject json = JsonParser.parseString(adapter.toJson(star)).getAsJsonObject();
+        assertEquals(site.getLocation().getX(), json.getAsJsonObject("worldPoint").get("x").getAsInt());
+        assertEquals(site.getId(), json.get("site").getAsInt());
+        assertEquals(site.getName(), json.get("location").getAsString());
+        // Older clients read miners as a string and lastUpdate as epoch milliseconds
+        assertEquals("4", json.get("miners").getAsString());
+        assertTrue(json.get("miners").getAsJsonPrimitive().isString());
+        assertEquals(1700000000123L, json.get("lastUpdate").getAsLong());
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        StarData star = new StarData(new WorldPoint(1000, 1000, 0), 420, 3, 12,
+                StarData.UNKNOWN_MINERS, null, false, 1700000000123L, null);
+        StarData read = adapter.fromJson(adapter.toJson(star));
+
+        assertEquals(star.getWorldPoint(), read.getWorldPoint());
+        assertEquals(star.getKey(), read.getKey());
+        assertEquals(3, read.getTier());
+        assertEquals(12, read.getHealth());
+        assertEquals(StarData.UNKNOWN_MINERS, read.getMiners());
+        assertNull(read.getTierTicksEstimate());
+        assertFalse(read.isActive());
+        assertEquals(1700000000123L, read.getLastUpdate());
+        assertNull(read.getDiscoveredBy());
+    }
+}
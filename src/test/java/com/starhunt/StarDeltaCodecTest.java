@@ -0,0 +1,169 @@
+package com.starhunt;
+
+import net.runelite.api.coords.WorldPoint;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.starhunt.StarFrameCodecTest.assertStarEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StarDeltaCodecTest {
+    private static final int SESSION = 42;
+    private static final int UPDATES = 25;
+
+    private final StarDeltaEncoder encoder = new StarDeltaEncoder();
+    private final StarDeltaDecoder decoder = new StarDeltaDecoder();
+    private final StarData star = new StarData(new WorldPoint(3000, 3000, 0), 301,
+            8, 100, 0, new int[]{100, 200}, true, 1700000000000L, "Zezima");
+
+    @Before
+    public void setUp() {
+        encoder.reset(SESSION);
+    }
+
+    /**
+     * Change a few fields of the star, as a tick of mining would
+     */
+    private void update(int i) {
+        star.setHealth(100 - i * 3);
+        star.setMiners(i % 4);
+        star.setLastUpdate(star.getLastUpdate() + 600);
+        if (i % 7 == 0) {
+            star.setTier(star.getTier() - 1);
+            star.setTierTicksEstimate(new int[]{100 - i, 200 - i});
+        }
+    }
+
+    private static byte entryKind(ByteBuffer frame) {
+        return frame.get(StarFrameCodec.HEADER_SIZE + StarDeltaEncoder.SESSION_SIZE);
+    }
+
+    private void assertDecodes(ByteBuffer frame) {
+        List<StarData> decoded = decoder.decode(frame);
+        assertEquals(1, decoded.size());
+        assertStarEquals(star, decoded.get(0));
+    }
+
+    @Test
+    public void roundTrip() {
+        for (int i = 0; i < UPDATES; i++) {
+            update(i);
+            assertDecodes(encoder.encode(Collections.singletonList(star)));
+        }
+        assertEquals(0, decoder.getDropped());
+    }
+
+    @Test
+    public void roundTripSeveralStars() {
+        List<StarData> stars = new ArrayList<>();
+        for (int s = 0; s < 40; s++) {
+            stars.add(new StarData(new WorldPoint(2000 + s, 3000, 0), 301 + s,
+                    s % 9 + 1, 100, StarData.UNKNOWN_MINERS, null, true, 1700000000000L, null));
+        }
+        for (int i = 0; i < UPDATES; i++) {
+            for (int s = 0; s < stars.size(); s += i % 3 + 1) {
+                stars.get(s).setHealth(100 - i);
+            }
+            List<StarData> decoded = decoder.decode(encoder.encode(stars));
+            assertEquals(stars.size(), decoded.size());
+            for (int s = 0; s < stars.size(); s++) {
+                assertStarEquals(stars.get(s), decoded.get(s));
+            }
+        }
+    }
+
+    @Test
+    public void sendsKeyframeEveryTenUpdates() {
+        ByteBuffer keyframe = null;
+        for (int i = 0; i < UPDATES; i++) {
+            update(i);
+            ByteBuffer frame = encoder.encode(Collections.singletonList(star));
+            byte expected = i % 11 == 0 ? StarDeltaEncoder.ENTRY_KEYFRAME : StarDeltaEncoder.ENTRY_DELTA;
+            assertEquals("update " + i, expected, entryKind(frame));
+            if (i == 0) {
+                keyframe = frame;
+            } else if (expected == StarDeltaEncoder.ENTRY_DELTA) {
+                assertTrue(frame.remaining() < keyframe.remaining());
+            }
+        }
+    }
+
+    @Test
+    public void dropsDeltasAfterMissedUpdateUntilKeyframe() {
+        List<ByteBuffer> frames = new ArrayList<>();
+        List<StarData> states = new ArrayList<>();
+        for (int i = 0; i < UPDATES; i++) {
+            update(i);
+            frames.add(encoder.encode(Collections.singletonList(star)));
+            states.add(star.copy());
+        }
+
+        // Lose the third update, so the deltas until the keyframe at update 11 can't be applied
+        int missed = 2;
+        for (int i = 0; i < UPDATES; i++) {
+            if (i == missed) {
+                continue;
+            }
+            List<StarData> decoded = decoder.decode(frames.get(i));
+            if (i > missed && i < 11) {
+                assertTrue("update " + i, decoded.isEmpty());
+            } else {
+                assertEquals("update " + i, 1, decoded.size());
+                assertStarEquals(states.get(i), decoded.get(0));
+            }
+        }
+        assertEquals(11 - missed - 1, decoder.getDropped());
+    }
+
+    @Test
+    public void newSessionStartsWithKeyframes() {
+        update(0);
+        assertDecodes(encoder.encode(Collections.singletonList(star)));
+        update(1);
+        encoder.encode(Collections.singletonList(star));
+
+        // A reconnect starts over, a decoder that never saw the session still gets the full star
+        encoder.reset(SESSION + 1);
+        update(2);
+        ByteBuffer frame = encoder.encode(Collections.singletonList(star));
+        assertEquals(StarDeltaEncoder.ENTRY_KEYFRAME, entryKind(frame));
+        assertDecodes(frame);
+    }
+
+    @Test
+    public void rejectsMalformedFrames() {
+        update(0);
+        ByteBuffer keyframe = encoder.encode(Collections.singletonList(star));
+        update(1);
+        ByteBuffer delta = encoder.encode(Collections.singletonList(star));
+
+        for (ByteBuffer frame : Arrays.asList(keyframe, delta)) {
+            for (int length = 0; length < frame.remaining(); length++) {
+                ByteBuffer truncated = frame.duplicate();
+                truncated.limit(length);
+                try {
+                    decoder.decode(truncated);
+                    fail("Decoded a frame truncated to " + length + " bytes");
+                } catch (IllegalArgumentException | BufferUnderflowException e) {
+                    // Expected, the socket manager drops the frame
+                }
+            }
+        }
+
+        try {
+            decoder.decode(StarFrameCodec.encode(Collections.singletonList(star)));
+            fail("Decoded a star frame as a delta frame");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.starhunt;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StarExpiryWheelTest {
+    private static final long TICK_MS = 1000;
+    // Spans 8 seconds, so longer deadlines wrap around the wheel
+    private static final int WHEEL_SIZE = 8;
+
+    private final List<Long> expired = new ArrayList<>();
+
+    @Test
+    public void expiresOnlyOnceDeadlinePasses() {
+        long now = System.currentTimeMillis();
+        StarExpiryWheel wheel = new StarExpiryWheel(TICK_MS, WHEEL_SIZE);
+        wheel.schedule(1L, now + 3000);
+        wheel.schedule(2L, now + 5000);
+
+        assertEquals(0, wheel.advance(now + 2999, expired::add));
+        assertEquals(1, wheel.advance(now + 3000, expired::add));
+        assertEquals(Arrays.asList(1L), expired);
+        assertFalse(wheel.isScheduled(1L));
+        assertTrue(wheel.isScheduled(2L));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    public void deadlinePastTheWheelSpanWrapsAround() {
+        long now = System.currentTimeMillis();
+        StarExpiryWheel wheel = new StarExpiryWheel(TICK_MS, WHEEL_SIZE);
+        // Lands in the same bucket as now + 4000, but must survive the first pass over it
+        wheel.schedule(1L, now + 20_000);
+
+        for (long t = now; t < now + 20_000; t += 500) {
+            assertEquals(0, wheel.advance(t, expired::add));
+        }
+        assertTrue(wheel.isScheduled(1L));
+
+        assertEquals(1, wheel.advance(now + 20_000, expired::add));
+        assertEquals(Arrays.asList(1L), expired);
+    }
+
+    @Test
+    public void longPauseExpiresEverythingDue() {
+        long now = System.currentTimeMillis();
+        StarExpiryWheel wheel = new StarExpiryWheel(TICK_MS, WHEEL_SIZE);
+        for (long key = 0; key < 20; key++) {
+            wheel.schedule(key, now + key * 1000);
+        }
+
+        assertEquals(20, wheel.advance(now + 60_000, expired::add));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void rescheduleAndCancel() {
+        long now = System.currentTimeMillis();
+        StarExpiryWheel wheel = new StarExpiryWheel(TICK_MS, WHEEL_SIZE);
+        wheel.schedule(1L, now + 1000);
+        wheel.schedule(1L, now + 6000);
+        wheel.schedule(2L, now + 1000);
+        wheel.cancel(2L);
+
+        assertEquals(0, wheel.advance(now + 2000, expired::add));
+        assertEquals(1, wheel.size());
+        assertEquals(1, wheel.advance(now + 6000, expired::add));
+        assertEquals(Arrays.asList(1L), expired);
+    }
+
+    @Test
+    public void overdueScheduleExpiresOnNextAdvance() {
+        long now = System.currentTimeMillis();
+        StarExpiryWheel wheel = new StarExpiryWheel(TICK_MS, WHEEL_SIZE);
+        wheel.advance(now + 5000, expired::add);
+        wheel.schedule(1L, now);
+
+        assertEquals(1, wheel.advance(now + 5000, expired::add));
+    }
+
+    @Test
+    public void callbackMayRescheduleExpiredKey() {
+        long now = System.currentTimeMillis();
+        StarExpiryWheel wheel = new StarExpiryWheel(TICK_MS, WHEEL_SIZE);
+        wheel.schedule(1L, now + 1000);
+
+        wheel.advance(now + 1000, key -> wheel.schedule(key, now + 3000));
+        assertTrue(wheel.isScheduled(1L));
+        assertEquals(1, wheel.advance(now + 3000, expired::add));
+    }
+
+    @Test
+    public void registryRechecksDeadlineOfUpdatedStar() {
+        long now = System.currentTimeMillis();
+        StarRegistry registry = new StarRegistry(10_000);
+        StarData star = StarRegistryTest.star(301, 10, now);
+        star.setActive(false);
+        registry.put(star);
+
+        // Updated after it was scheduled, which pushes its deadline back
+        star.setLastUpdate(now + 5000);
+        assertEquals(0, registry.expireInactive(now + 10_000));
+        assertSame(star, registry.get(star.getKey()));
+
+        assertEquals(1, registry.expireInactive(now + 15_000));
+        assertNull(registry.get(star.getKey()));
+    }
+
+    @Test
+    public void registryKeepsActiveStars() {
+        long now = System.currentTimeMillis();
+        StarRegistry registry = new StarRegistry(10_000);
+        StarData star = StarRegistryTest.star(301, 10, now);
+        star.setActive(false);
+        registry.put(star);
+        star.setActive(true);
+        registry.touch(star);
+
+        assertEquals(0, registry.expireInactive(now + 60_000));
+        assertSame(star, registry.get(star.getKey()));
+    }
+}
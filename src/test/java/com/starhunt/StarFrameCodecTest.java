@@ -0,0 +1,106 @@
+package com.starhunt;
+
+import net.runelite.api.coords.WorldPoint;
+import org.junit.Test;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StarFrameCodecTest {
+    static void assertStarEquals(StarData expected, StarData actual) {
+        assertEquals(expected.getWorldPoint(), actual.getWorldPoint());
+        assertEquals(expected.getWorld(), actual.getWorld());
+        assertEquals(expected.getLocationId(), actual.getLocationId());
+        assertEquals(expected.getTier(), actual.getTier());
+        assertEquals(expected.getHealth(), actual.getHealth());
+        assertEquals(expected.getMiners(), actual.getMiners());
+        assertArrayEquals(expected.getTierTicksEstimate(), actual.getTierTicksEstimate());
+        assertEquals(expected.isActive(), actual.isActive());
+        assertEquals(expected.getLastUpdate(), actual.getLastUpdate());
+        assertEquals(expected.getDiscoveredBy(), actual.getDiscoveredBy());
+    }
+
+    private static void assertRejected(ByteBuffer frame) {
+        try {
+            StarFrameCodec.decode(frame);
+            fail("Decoded a malformed frame");
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+            // Expected, the socket manager drops the frame
+        }
+    }
+
+    private static ByteBuffer header(int type, int version, int count) {
+        ByteBuffer frame = ByteBuffer.allocate(StarFrameCodec.HEADER_SIZE);
+        frame.put((byte) type).put((byte) version).putShort((short) count);
+        frame.flip();
+        return frame;
+    }
+
+    @Test
+    public void roundTrip() {
+        StarLocation site = StarLocation.fromId(3);
+        List<StarData> stars = Arrays.asList(
+                new StarData(site.getLocation(), 302, 9, 100, 12,
+                        new int[]{100, 200, 300, 400}, true, 1700000000123L, "Z\u00ebzima"),
+                new StarData(new WorldPoint(3200, 3200, 1), 580, -1, -1,
+                        StarData.UNKNOWN_MINERS, null, false, 0, null));
+
+        ByteBuffer frame = StarFrameCodec.encode(stars);
+        assertEquals(StarFrameCodec.FRAME_STARS, StarFrameCodec.peekType(frame));
+        List<StarData> decoded = StarFrameCodec.decode(frame);
+
+        assertEquals(stars.size(), decoded.size());
+        for (int i = 0; i < stars.size(); i++) {
+            assertStarEquals(stars.get(i), decoded.get(i));
+        }
+        assertFalse(frame.hasRemaining());
+    }
+
+    @Test
+    public void roundTripEmptyFrame() {
+        ByteBuffer frame = StarFrameCodec.encode(Collections.emptyList());
+        assertEquals(StarFrameCodec.HEADER_SIZE, frame.remaining());
+        assertTrue(StarFrameCodec.decode(frame).isEmpty());
+    }
+
+    @Test
+    public void rejectsTruncatedHeader() {
+        assertRejected(ByteBuffer.allocate(0));
+        assertRejected(ByteBuffer.wrap(new byte[]{StarFrameCodec.FRAME_STARS, StarFrameCodec.VERSION, 0}));
+        assertEquals(0, StarFrameCodec.peekType(ByteBuffer.allocate(0)));
+    }
+
+    @Test
+    public void rejectsOtherTypesAndVersions() {
+        assertRejected(header(StarFrameCodec.FRAME_DELTA, StarFrameCodec.VERSION, 0));
+        assertRejected(header(0x7F, StarFrameCodec.VERSION, 0));
+        assertRejected(header(StarFrameCodec.FRAME_STARS, StarFrameCodec.VERSION + 1, 0));
+        assertRejected(header(StarFrameCodec.FRAME_STARS, 0, 0));
+    }
+
+    @Test
+    public void rejectsTruncatedStars() {
+        StarData star = new StarData(new WorldPoint(3000, 3000, 0), 301, 5, 50, 2,
+                new int[]{10, 20}, true, 1700000000000L, "Zezima");
+        ByteBuffer frame = StarFrameCodec.encode(Collections.singletonList(star));
+        for (int length = StarFrameCodec.HEADER_SIZE; length < frame.remaining(); length++) {
+            ByteBuffer truncated = frame.duplicate();
+            truncated.limit(length);
+            assertRejected(truncated);
+        }
+
+        // A count larger than the stars in the frame
+        ByteBuffer overcounted = frame.duplicate();
+        overcounted.putShort(2, (short) 2);
+        assertRejected(overcounted);
+    }
+}
@@ -0,0 +1,153 @@
+package com.starhunt;
+
+import net.runelite.api.coords.WorldPoint;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.starhunt.StarFrameCodecTest.assertStarEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StarJournalTest {
+    private static final long NO_ROLL = Long.MAX_VALUE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static StarData star(int world, int health) {
+        return new StarData(new WorldPoint(3000 + world, 3100, 0), world, 6, health, 2,
+                null, true, 1700000000000L + health, null);
+    }
+
+    private static List<StarJournal.Event> readAll(StarJournal journal) throws IOException {
+        List<StarJournal.Event> events = new ArrayList<>();
+        journal.read(events::add);
+        return events;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        StarJournal journal = new StarJournal(folder.getRoot().toPath(), NO_ROLL);
+        StarData sent = star(301, 80);
+        StarData received = new StarData(StarLocation.fromId(0).getLocation(), 302, 9, 100,
+                StarData.UNKNOWN_MINERS, null, false, 1700000000123L, null);
+        long before = System.currentTimeMillis();
+        journal.record(sent, StarJournal.Source.SENT);
+        journal.record(received, StarJournal.Source.RECEIVED);
+        journal.close();
+
+        // Header, then 30 bytes per event
+        assertEquals(30, StarJournal.EVENT_SIZE);
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        assertEquals(4 + 2 * StarJournal.EVENT_SIZE, Files.size(segments.get(0)));
+
+        List<StarJournal.Event> events = readAll(new StarJournal(folder.getRoot().toPath(), NO_ROLL));
+        assertEquals(2, events.size());
+        assertEquals(StarJournal.Source.SENT, events.get(0).getSource());
+        assertEquals(StarJournal.Source.RECEIVED, events.get(1).getSource());
+        assertStarEquals(sent, events.get(0).getStar());
+        assertStarEquals(received, events.get(1).getStar());
+        assertTrue(events.get(0).getTimestamp() >= before);
+        assertTrue(events.get(1).getTimestamp() >= events.get(0).getTimestamp());
+    }
+
+    @Test
+    public void dropsPartialTrailingEvent() throws IOException {
+        StarJournal journal = new StarJournal(folder.getRoot().toPath(), NO_ROLL);
+        for (int i = 0; i < 3; i++) {
+            journal.record(star(301 + i, 50), StarJournal.Source.SENT);
+        }
+        journal.close();
+
+        Path segment = segments().get(0);
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            file.truncate(file.size() - 7);
+        }
+
+        List<StarJournal.Event> events = readAll(journal);
+        assertEquals(2, events.size());
+        assertEquals(301, events.get(0).getStar().getWorld());
+        assertEquals(302, events.get(1).getStar().getWorld());
+    }
+
+    @Test
+    public void readsSegmentsInOrder() throws IOException {
+        // Roll after every flush, and after every reopen
+        for (int session = 0; session < 3; session++) {
+            StarJournal journal = new StarJournal(folder.getRoot().toPath(), StarJournal.EVENT_SIZE);
+            for (int flush = 0; flush < 2; flush++) {
+                journal.record(star(301, session * 10 + flush), StarJournal.Source.SENT);
+                journal.flush();
+            }
+            journal.close();
+        }
+
+        assertEquals(6, segments().size());
+        List<StarJournal.Event> events = readAll(new StarJournal(folder.getRoot().toPath(), NO_ROLL));
+        assertEquals(6, events.size());
+        int[] expected = {0, 1, 10, 11, 20, 21};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], events.get(i).getStar().getHealth());
+        }
+    }
+
+    @Test
+    public void rollsSegmentsOnceLargeEnough() throws IOException {
+        StarJournal journal = new StarJournal(folder.getRoot().toPath(), 4 + 3 * StarJournal.EVENT_SIZE);
+        for (int i = 0; i < 5; i++) {
+            journal.record(star(301, i), StarJournal.Source.SENT);
+            journal.flush();
+        }
+        journal.close();
+
+        // Three events fill the first segment, the next ones go in the second
+        List<Path> segments = segments();
+        assertEquals(2, segments.size());
+        assertEquals(4 + 3 * StarJournal.EVENT_SIZE, Files.size(segments.get(0)));
+        assertEquals(4 + 2 * StarJournal.EVENT_SIZE, Files.size(segments.get(1)));
+        assertEquals(5, readAll(journal).size());
+    }
+
+    @Test
+    public void compactsToLastEventOfEachStar() throws IOException {
+        // Every flush fills a segment; the ninth closed segment triggers compaction
+        StarJournal journal = new StarJournal(folder.getRoot().toPath(), 4 + 3 * StarJournal.EVENT_SIZE);
+        for (int flush = 0; flush < 12; flush++) {
+            for (int world = 301; world <= 303; world++) {
+                journal.record(star(world, flush), StarJournal.Source.RECEIVED);
+            }
+            journal.flush();
+        }
+        journal.close();
+
+        // The first nine segments were merged into one, followed by the last three
+        assertEquals(4, segments().size());
+        List<StarJournal.Event> events = readAll(journal);
+        assertEquals(3 + 9, events.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(8, events.get(i).getStar().getHealth());
+        }
+        for (int i = 3; i < events.size(); i++) {
+            assertEquals(9 + (i - 3) / 3, events.get(i).getStar().getHealth());
+            assertEquals(301 + (i - 3) % 3, events.get(i).getStar().getWorld());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.starhunt;
+
+import net.runelite.api.coords.WorldPoint;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StarLocationTest {
+    private static StarLocation bruteForceClosest(int x, int y) {
+        StarLocation best = null;
+        int bestDistance = Integer.MAX_VALUE;
+        for (StarLocation location : StarLocation.values()) {
+            WorldPoint site = location.getLocation();
+            int distance = Math.max(Math.abs(site.getX() - x), Math.abs(site.getY() - y));
+            if (distance < bestDistance) {
+                best = location;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void loadsSitesInFileOrder() {
+        StarLocation[] values = StarLocation.values();
+        assertTrue(values.length > 0);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(i, values[i].getId());
+            assertSame(values[i], StarLocation.fromId(i));
+            assertSame(values[i], StarLocation.fromName(values[i].getName()));
+        }
+        assertNull(StarLocation.fromId(values.length));
+        assertNull(StarLocation.fromName("Not a landing site"));
+    }
+
+    @Test
+    public void gridLookupMatchesBruteForce() {
+        Random random = new Random(1);
+        for (int i = 0; i < 20_000; i++) {
+            // Mostly around the sites, sometimes far outside them
+            int x = i % 10 == 0 ? random.nextInt(20_000) : 2400 + random.nextInt(1600);
+            int y = i % 10 == 0 ? random.nextInt(20_000) : 2800 + random.nextInt(1400);
+            StarLocation expected = bruteForceClosest(x, y);
+            StarLocation actual = StarLocation.getClosestLocation(new WorldPoint(x, y, 0));
+
+            // Equally close sites may be picked either way, but must be equally close
+            WorldPoint point = new WorldPoint(x, y, 0);
+            assertEquals("closest to " + x + "," + y,
+                    expected.getLocation().distanceTo2D(point), actual.getLocation().distanceTo2D(point));
+        }
+    }
+
+    @Test
+    public void cachedLookupMatchesFirstLookup() {
+        for (StarLocation location : StarLocation.values()) {
+            WorldPoint near = new WorldPoint(location.getLocation().getX() + 3, location.getLocation().getY() - 2, 0);
+            StarLocation first = StarLocation.getClosestLocation(near);
+            assertSame(first, StarLocation.getClosestLocation(near));
+        }
+    }
+
+    @Test
+    public void siteIdOnlyWithinRadius() {
+        for (StarLocation location : StarLocation.values()) {
+            WorldPoint site = location.getLocation();
+            WorldPoint closest = bruteForceClosest(site.getX(), site.getY()).getLocation();
+            assertEquals(0, closest.distanceTo2D(site));
+            assertEquals(StarLocation.getClosestLocation(site).getId(), StarLocation.getSiteId(site));
+        }
+
+        WorldPoint site = StarLocation.fromId(0).getLocation();
+        WorldPoint edge = new WorldPoint(site.getX(), site.getY() + StarLocation.SITE_RADIUS, 0);
+        WorldPoint outside = new WorldPoint(site.getX() + 2000, site.getY() + 2000, 0);
+        assertEquals(StarLocation.getClosestLocation(edge).getId(), StarLocation.getSiteId(edge));
+        assertEquals(-1, StarLocation.getSiteId(outside));
+    }
+}
@@ -0,0 +1,189 @@
+package com.starhunt;
+
+import net.runelite.api.coords.WorldPoint;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StarRegistryTest {
+    private static final long TTL_MS = 60_000;
+
+    // Away from every landing site, so stars are keyed by tile
+    static StarData star(int world, int x, long lastUpdate) {
+        return new StarData(new WorldPoint(x, 100, 0), world,
+                5, 100, StarData.UNKNOWN_MINERS, null, true, lastUpdate, null);
+    }
+
+    @Test
+    public void putReplacesStarWithSameKey() {
+        StarRegistry registry = new StarRegistry(TTL_MS);
+        StarData first = star(301, 10, 1000);
+        StarData second = star(301, 10, 2000);
+
+        assertNull(registry.put(first));
+        assertSame(first, registry.put(second));
+        assertEquals(1, registry.size());
+        assertSame(second, registry.get(second.getKey()));
+    }
+
+    @Test
+    public void keyDistinguishesWorldAndTile() {
+        assertTrue(star(301, 10, 1).getKey() != star(302, 10, 1).getKey());
+        assertTrue(star(301, 10, 1).getKey() != star(301, 11, 1).getKey());
+    }
+
+    @Test
+    public void removeMovesLastStarIntoHole() {
+        StarRegistry registry = new StarRegistry(TTL_MS);
+        StarData a = star(301, 10, 1000);
+        StarData b = star(301, 20, 2000);
+        StarData c = star(301, 30, 3000);
+        registry.put(a);
+        registry.put(b);
+        registry.put(c);
+
+        assertSame(a, registry.remove(a.getKey()));
+        assertNull(registry.remove(a.getKey()));
+        assertEquals(2, registry.size());
+        assertFalse(registry.contains(a.getKey()));
+        assertSame(b, registry.get(b.getKey()));
+        assertSame(c, registry.get(c.getKey()));
+
+        List<StarData> values = registry.values();
+        assertEquals(2, values.size());
+        assertTrue(values.contains(b) && values.contains(c));
+
+        // The moved star is still found and removable under its key
+        assertSame(c, registry.remove(c.getKey()));
+        assertSame(b, registry.get(b.getKey()));
+        assertEquals(1, registry.values().size());
+    }
+
+    @Test
+    public void publishesNewestFirst() {
+        StarRegistry registry = new StarRegistry(TTL_MS);
+        StarData a = star(301, 10, 1000);
+        StarData b = star(301, 20, 3000);
+        StarData c = star(301, 30, 2000);
+        registry.put(a);
+        registry.put(b);
+        registry.put(c);
+
+        assertOrder(registry.publish().getStars(), b, c, a);
+    }
+
+    @Test
+    public void touchReordersUpdatedStar() {
+        StarRegistry registry = new StarRegistry(TTL_MS);
+        StarData a = star(301, 10, 1000);
+        StarData b = star(301, 20, 2000);
+        StarData c = star(301, 30, 3000);
+        registry.put(a);
+        registry.put(b);
+        registry.put(c);
+
+        a.setLastUpdate(4000);
+        registry.touch(a);
+        assertOrder(registry.publish().getStars(), a, c, b);
+
+        // The comparator reads stamps by index, so it must still work after a swap-remove
+        registry.remove(c.getKey());
+        b.setLastUpdate(5000);
+        registry.touch(b);
+        assertOrder(registry.publish().getStars(), b, a);
+    }
+
+    @Test
+    public void equalTimesAreOrderedByKey() {
+        StarRegistry registry = new StarRegistry(TTL_MS);
+        StarData a = star(301, 10, 1000);
+        StarData b = star(301, 20, 1000);
+        registry.put(b);
+        registry.put(a);
+
+        assertOrder(registry.publish().getStars(), a, b);
+    }
+
+    @Test
+    public void publishCopiesOnlyChangedStars() {
+        StarRegistry registry = new StarRegistry(TTL_MS);
+        StarData a = star(301, 10, 1000);
+        StarData b = star(301, 20, 2000);
+        registry.put(a);
+        registry.put(b);
+        StarSnapshot first = registry.publish();
+        assertSame(first, registry.publish());
+
+        b.setHealth(50);
+        registry.touch(b);
+        StarSnapshot second = registry.publish();
+        assertEquals(first.getVersion() + 1, second.getVersion());
+        assertSame(first.getStars().get(1), second.getStars().get(1));
+        assertEquals(50, second.getStars().get(0).getHealth());
+        assertEquals(100, first.getStars().get(0).getHealth());
+    }
+
+    @Test
+    public void publishedCopyKeepsRenderedState() {
+        StarRegistry registry = new StarRegistry(TTL_MS);
+        StarData a = star(301, 10, 1000);
+        registry.put(a);
+        assertNull(registry.getPublished(a.getKey()));
+        registry.publish();
+
+        a.setHealth(40);
+        assertEquals(100, registry.getPublished(a.getKey()).getHealth());
+        registry.touch(a);
+        registry.publish();
+        assertEquals(40, registry.getPublished(a.getKey()).getHealth());
+    }
+
+    @Test
+    public void removeLastStar() {
+        StarRegistry registry = new StarRegistry(TTL_MS);
+        StarData a = star(301, 10, 1000);
+        StarData b = star(301, 20, 2000);
+        registry.put(a);
+        registry.put(b);
+
+        assertSame(b, registry.remove(b.getKey()));
+        assertSame(a, registry.get(a.getKey()));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void removalListenerSeesEveryRemovedStar() {
+        StarRegistry registry = new StarRegistry(TTL_MS);
+        List<Long> removed = new ArrayList<>();
+        registry.setRemovalListener(removed::add);
+        StarData a = star(301, 10, 1000);
+        StarData b = star(301, 20, 2000);
+        StarData c = star(301, 30, 3000);
+        registry.put(a);
+        registry.put(b);
+        registry.put(c);
+
+        registry.remove(b.getKey());
+        registry.remove(b.getKey());
+        assertEquals(Collections.singletonList(b.getKey()), removed);
+
+        registry.clear();
+        assertEquals(Arrays.asList(b.getKey(), a.getKey(), c.getKey()), removed);
+    }
+
+    private static void assertOrder(List<StarData> published, StarData... expected) {
+        assertEquals(expected.length, published.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getKey(), published.get(i).getKey());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.starhunt;
+
+import net.runelite.api.coords.WorldPoint;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StarSendQueueTest {
+    private static StarData star(int world, int tier) {
+        return new StarData(new WorldPoint(3000, 3000, 0), world, tier, 100,
+                StarData.UNKNOWN_MINERS, null, true, 1700000000000L, null);
+    }
+
+    private static void assertTaken(StarSendQueue queue, int... worlds) throws InterruptedException {
+        List<StarData> taken = queue.take(worlds.length);
+        assertEquals(worlds.length, taken.size());
+        for (int i = 0; i < worlds.length; i++) {
+            assertEquals(worlds[i], taken.get(i).getWorld());
+        }
+    }
+
+    /**
+     * Send a star once, so its next update with the same tier is a normal one
+     */
+    private static void sendOnce(StarSendQueue queue, StarData star) throws InterruptedException {
+        queue.offer(star);
+        assertTaken(queue, star.getWorld());
+    }
+
+    @Test
+    public void tierChangesAndNewStarsGoFirst() throws InterruptedException {
+        StarSendQueue queue = new StarSendQueue(8);
+        sendOnce(queue, star(301, 5));
+        sendOnce(queue, star(302, 5));
+
+        queue.offer(star(301, 5));
+        queue.offer(star(302, 4));
+        queue.offer(star(303, 7));
+        assertTaken(queue, 302, 303, 301);
+    }
+
+    @Test
+    public void supersededUpdateKeepsPositionAndPriority() throws InterruptedException {
+        StarSendQueue queue = new StarSendQueue(8);
+        sendOnce(queue, star(301, 5));
+        sendOnce(queue, star(302, 5));
+
+        queue.offer(star(301, 5));
+        queue.offer(star(302, 5));
+        queue.offer(star(301, 4));
+        // The tier of the superseded update was never sent, so it stays a priority one
+        queue.offer(star(301, 5));
+        assertEquals(2, queue.getDepth());
+        assertEquals(2, queue.getSuperseded());
+        assertTaken(queue, 301, 302);
+    }
+
+    @Test
+    public void droppedTierChangeStaysPriority() throws InterruptedException {
+        StarSendQueue queue = new StarSendQueue(1);
+        sendOnce(queue, star(301, 5));
+        sendOnce(queue, star(302, 5));
+
+        // The queue is full of a priority update, so the normal update is dropped
+        queue.offer(star(303, 9));
+        assertFalse(queue.offer(star(301, 5)));
+        // The tier change replaces the priority update, which is dropped in turn
+        assertTrue(queue.offer(star(302, 4)));
+        assertEquals(2, queue.getDropped());
+        assertTaken(queue, 302);
+
+        // Nothing was sent for 303, so it is still a new star
+        queue.offer(star(301, 5));
+        queue.offer(star(303, 9));
+        assertTaken(queue, 303);
+    }
+
+    @Test
+    public void forgottenStarIsPriorityAgain() throws InterruptedException {
+        StarSendQueue queue = new StarSendQueue(8);
+        sendOnce(queue, star(301, 5));
+        sendOnce(queue, star(302, 5));
+        queue.forget(star(302, 5).getKey());
+
+        queue.offer(star(301, 5));
+        queue.offer(star(302, 5));
+        assertTaken(queue, 302, 301);
+    }
+
+    @Test(timeout = 10_000)
+    public void batchIsTakenWhole() throws InterruptedException {
+        StarSendQueue queue = new StarSendQueue(64);
+        List<StarData> batch = new ArrayList<>();
+        for (int world = 301; world < 341; world++) {
+            batch.add(star(world, 5));
+        }
+
+        for (int round = 0; round < 200; round++) {
+            Thread producer = new Thread(() -> queue.offerAll(batch));
+            producer.start();
+
+            // Usually waiting before the batch is queued, like the sender thread
+            List<StarData> taken = queue.take(64);
+            assertEquals("round " + round, batch.size(), taken.size());
+            producer.join();
+            for (StarData star : batch) {
+                queue.forget(star.getKey());
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.starhunt;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StarTierTest {
+    // The crashed star object IDs StarData scanned before the table, smallest star first
+    private static final int[] LEGACY_TIER_IDS = {41229, 41228, 41227, 41226, 41225, 41224, 41223, 41021, 41020};
+
+    private static int legacyTier(int id) {
+        for (int i = 0; i < LEGACY_TIER_IDS.length; i++) {
+            if (id == LEGACY_TIER_IDS[i]) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void matchesLegacyListOverWholeRange() {
+        for (int id = 41020; id <= 41229; id++) {
+            int expected = legacyTier(id);
+            assertEquals("object " + id, expected, StarTier.getSize(id));
+            assertEquals("object " + id, expected, StarData.getTier(id));
+
+            StarTier tier = StarTier.fromObjectId(id);
+            if (expected < 0) {
+                assertNull("object " + id, tier);
+            } else {
+                assertEquals(expected, tier.getSize());
+                assertEquals(id, tier.getObjectId());
+            }
+        }
+    }
+
+    @Test
+    public void rejectsIdsOutsideRange() {
+        int[] ids = {41019, 41230, 0, -1, -41020, Integer.MIN_VALUE, Integer.MAX_VALUE, 41020 + Integer.MIN_VALUE};
+        for (int id : ids) {
+            assertNull("object " + id, StarTier.fromObjectId(id));
+            assertEquals("object " + id, StarTier.UNKNOWN_SIZE, StarTier.getSize(id));
+        }
+    }
+
+    @Test
+    public void everyTierMapsBackToItself() {
+        for (StarTier tier : StarTier.values()) {
+            assertSame(tier, StarTier.fromObjectId(tier.getObjectId()));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.starhunt;
+
+import net.runelite.api.coords.WorldPoint;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StarhuntSocketManagerTest {
+    private static final int DISPATCHES = 20_000;
+
+    private final StarhuntSocketManager socketManager = new StarhuntSocketManager(new StarhuntMetrics());
+    private final StarhuntMessageAdapter messageAdapter = new StarhuntMessageAdapter();
+
+    private static class RecordingListener implements StarhuntListener {
+        final List<StarData> stars = new ArrayList<>();
+
+        @Override
+        public void onWebsocketConnected() {
+        }
+
+        @Override
+        public void onWebsocketDisconnected() {
+        }
+
+        @Override
+        public void onStarDataReceived(StarData starData) {
+            stars.add(starData);
+        }
+    }
+
+    public static class CountingListener extends RecordingListener {
+        long count;
+
+        @Override
+        public void onStarDataReceived(StarData starData) {
+            count += starData.getWorld();
+        }
+    }
+
+    private static StarData star(int world, int x) {
+        return new StarData(new WorldPoint(x, 1000, 0), world, 4, 50,
+                StarData.UNKNOWN_MINERS, null, true, 1700000000000L, null);
+    }
+
+    private static void assertKeys(List<StarData> expected, List<StarData> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getKey(), actual.get(i).getKey());
+        }
+    }
+
+    @Test
+    public void dispatchesUpdatesAndBatchesToEveryListener() {
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        socketManager.registerListener(first);
+        socketManager.registerListener(second);
+
+        StarData single = star(301, 1000);
+        List<StarData> batch = Arrays.asList(star(302, 1010), star(303, 1020), star(304, 1030));
+        socketManager.handleMessage(messageAdapter.toJson(StarhuntMessage.update(single)));
+        socketManager.handleMessage(messageAdapter.toJson(StarhuntMessage.batch(batch)));
+
+        List<StarData> expected = new ArrayList<>();
+        expected.add(single);
+        expected.addAll(batch);
+        assertKeys(expected, first.stars);
+        assertKeys(expected, second.stars);
+    }
+
+    @Test
+    public void dispatchesBinaryFrames() {
+        RecordingListener listener = new RecordingListener();
+        socketManager.registerListener(listener);
+
+        List<StarData> stars = Arrays.asList(star(305, 1040), star(306, 1050));
+        socketManager.handleBinaryMessage(StarFrameCodec.encode(stars));
+        assertKeys(stars, listener.stars);
+    }
+
+    @Test
+    public void failingListenerDoesNotStopOthers() {
+        RecordingListener listener = new RecordingListener();
+        socketManager.registerListener(new RecordingListener() {
+            @Override
+            public void onStarDataReceived(StarData starData) {
+                throw new IllegalStateException("listener failure");
+            }
+        });
+        socketManager.registerListener(listener);
+
+        socketManager.handleMessage(messageAdapter.toJson(StarhuntMessage.update(star(301, 1000))));
+        assertEquals(1, listener.stars.size());
+    }
+
+    @Test
+    public void registersEachListenerOnce() {
+        RecordingListener listener = new RecordingListener();
+        RecordingListener removed = new RecordingListener();
+        socketManager.registerListener(listener);
+        socketManager.registerListener(listener);
+        socketManager.registerListener(removed);
+        socketManager.unregisterListener(removed);
+
+        socketManager.handleMessage(messageAdapter.toJson(StarhuntMessage.update(star(301, 1000))));
+        assertEquals(1, listener.stars.size());
+        assertTrue(removed.stars.isEmpty());
+    }
+
+    @Test
+    public void ignoresMalformedAndOtherMessages() {
+        RecordingListener listener = new RecordingListener();
+        socketManager.registerListener(listener);
+
+        socketManager.handleMessage("{\"type\":\"STAR_UPDATE\",\"data\":");
+        socketManager.handleMessage("not json");
+        socketManager.handleMessage("{\"type\":\"PING\",\"data\":{\"stars\":[1,2]}}");
+        socketManager.handleBinaryMessage(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        assertTrue(listener.stars.isEmpty());
+    }
+
+    @Test
+    public void acceptsOnlyOfferedCapabilities() {
+        // Nothing was offered without a connection, so an unsolicited HELLO_ACK enables nothing
+        StarhuntMessage ack = StarhuntMessage.hello(StarhuntMessage.CAPABILITY_BATCH);
+        String json = messageAdapter.toJson(ack).replace("\"HELLO\"", "\"HELLO_ACK\"");
+        socketManager.handleMessage(json);
+        assertFalse(socketManager.supportsBatches());
+    }
+
+    @Test
+    public void typedDispatchIsNotSlowerThanReflection() throws Exception {
+        CountingListener[] listeners = new CountingListener[4];
+        for (int i = 0; i < listeners.length; i++) {
+            listeners[i] = new CountingListener();
+            socketManager.registerListener(listeners[i]);
+        }
+        List<StarData> stars = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            stars.add(star(301 + i, 1000 + i));
+        }
+
+        long reflective = Long.MAX_VALUE;
+        long typed = Long.MAX_VALUE;
+        // The first rounds warm up both paths, the best of the rest is kept
+        for (int round = 0; round < 10; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < DISPATCHES; i++) {
+                StarData star = stars.get(i & 63);
+                for (CountingListener listener : listeners) {
+                    // How listeners were called before the typed interface
+                    Method method = listener.getClass().getMethod("onStarDataReceived", StarData.class);
+                    method.invoke(listener, star);
+                }
+            }
+            long reflectiveRound = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < DISPATCHES; i++) {
+                socketManager.notifyListenersWithStar(stars.get(i & 63));
+            }
+            long typedRound = System.nanoTime() - start;
+
+            if (round >= 5) {
+                reflective = Math.min(reflective, reflectiveRound);
+                typed = Math.min(typed, typedRound);
+            }
+        }
+
+        assertEquals(listeners[0].count, listeners[3].count);
+        assertTrue("Typed dispatch took " + typed + " ns, reflection " + reflective + " ns",
+                typed <= reflective);
+    }
+}
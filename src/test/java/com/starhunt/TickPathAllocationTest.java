@@ -0,0 +1,210 @@
+package com.starhunt;
+
+import com.sun.management.ThreadMXBean;
+import net.runelite.api.Client;
+import net.runelite.api.NPC;
+import net.runelite.api.Player;
+import net.runelite.api.coords.WorldPoint;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the per-tick work of the plugin in a steady state and checks that it allocates
+ * nothing, using the allocation counter of the current thread. Each tick verifies the
+ * dirty stars and then runs the regular star updates of {@link StarUpdateScheduler},
+ * which refresh stars through {@link StarData#update} and queue them to be shared.
+ * The RuneLite objects are proxies returning values created up front.
+ */
+public class TickPathAllocationTest {
+    private static final int WARMUP_TICKS = 20_000;
+    private static final int MEASURED_TICKS = 10_000;
+    private static final int STARS = 8;
+    private static final Integer MINING = 625;
+    private static final Integer IDLE = -1;
+    private static final Integer HEALTH_RATIO = -1;
+    private static final Integer HEALTH_SCALE = 100;
+    private static final Integer WORLD = 301;
+    private static final long TICK_MS = 600;
+    private static final int UPDATE_FREQUENCY_MS = 1000;
+    private static final int MAX_UPDATE_DISTANCE = 100;
+    // Longer than miners are remembered, so the miner count changes as players come and go
+    private static final int VISIT_TICKS = 20;
+
+    private final StarRegistry registry = new StarRegistry(60_000);
+    private final DirtyStarSet dirtyStars = new DirtyStarSet();
+    private final StarNpcIndex starNpcs = new StarNpcIndex();
+    private final MinerCounter minerCounter = new MinerCounter();
+    private final StarhuntMetrics metrics = new StarhuntMetrics();
+    private final StarOutbox outbox = new StarOutbox();
+    private final StarUpdateScheduler scheduler = new StarUpdateScheduler(outbox::add);
+    private long now;
+    private int shared;
+    private final StarData[] stars = new StarData[STARS];
+    private final Integer[] ticks = new Integer[WARMUP_TICKS + MEASURED_TICKS + 2];
+    private int tick;
+    private final List<Player> players = new ArrayList<>();
+    private final Player localPlayer = player(STARS * 2, new WorldPoint(1035, 1000, 0), IDLE);
+    private final Client client = proxy(Client.class, (name) -> {
+        switch (name) {
+            case "getTickCount":
+                return ticks[tick];
+            case "getPlayers":
+                return players;
+            case "getLocalPlayer":
+                return localPlayer;
+            case "getWorld":
+                return WORLD;
+            default:
+                return null;
+        }
+    });
+
+    @Test
+    public void steadyStateTickDoesNotAllocate() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        now = System.currentTimeMillis();
+        for (int i = 0; i < ticks.length; i++) {
+            ticks[i] = i;
+        }
+        for (int s = 0; s < STARS; s++) {
+            WorldPoint point = new WorldPoint(1000 + s * 10, 1000, 0);
+            stars[s] = new StarData(point, WORLD, 5, 100,
+                    StarData.UNKNOWN_MINERS, null, true, now, null);
+            NPC npc = npc(point);
+            stars[s].setNpc(npc);
+            registry.put(stars[s]);
+            starNpcs.add(npc);
+            // One player mining each star and one standing by
+            players.add(player(s * 2, new WorldPoint(point.getX() - 1, point.getY(), 0), MINING));
+            players.add(player(s * 2 + 1, new WorldPoint(point.getX() + 5, point.getY(), 0), IDLE));
+            // And one mining it from time to time, so the star changes and is shared
+            players.add(visitingPlayer(STARS * 2 + 1 + s, new WorldPoint(point.getX() + 2, point.getY(), 0),
+                    new WorldPoint(point.getX() + 2, point.getY() + 30, 0)));
+        }
+
+        for (int i = 0; i < WARMUP_TICKS; i++) {
+            runTick();
+        }
+        // Every star has a miner, and visitors at some of them
+        assertTrue(runTick() >= STARS);
+        // The stars near the player were updated and shared along the way
+        assertTrue("Shared " + shared + " updates", shared > WARMUP_TICKS / VISIT_TICKS);
+        shared = 0;
+
+        long threadId = Thread.currentThread().getId();
+        // Reading the counter may allocate itself, so measure that first
+        long start = threads.getThreadAllocatedBytes(threadId);
+        long overhead = threads.getThreadAllocatedBytes(threadId) - start;
+
+        start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_TICKS; i++) {
+            runTick();
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - start - overhead;
+        assertTrue("Shared " + shared + " updates", shared > MEASURED_TICKS / VISIT_TICKS);
+
+        // Any allocation made every tick would add up to at least 16 bytes per tick
+        assertTrue("Allocated " + allocated + " bytes over " + MEASURED_TICKS + " ticks",
+                allocated < MEASURED_TICKS);
+    }
+
+    /**
+     * @return The number of miners counted across all stars
+     */
+    private int runTick() {
+        tick++;
+        now += TICK_MS;
+        for (int s = 0; s < STARS; s++) {
+            dirtyStars.mark(stars[s].getKey());
+        }
+
+        int miners = 0;
+        for (int i = 0; i < dirtyStars.size(); i++) {
+            StarData star = registry.get(dirtyStars.get(i));
+            assertNotNull(starNpcs.get(star.getWorldPoint()));
+            miners += minerCounter.count(client, star.getWorldPoint());
+        }
+        dirtyStars.clear();
+        registry.expireInactive(now);
+
+        shared += scheduler.updateDueStars(client, registry, minerCounter, metrics, now,
+                UPDATE_FREQUENCY_MS, MAX_UPDATE_DISTANCE);
+        // Flushing the outbox sends the stars, which allocates by design
+        outbox.clear();
+        return miners;
+    }
+
+    private static Player player(int id, WorldPoint location, Integer animation) {
+        Integer boxedId = id;
+        return proxy(Player.class, (name) -> {
+            switch (name) {
+                case "getId":
+                    return boxedId;
+                case "getWorldLocation":
+                    return location;
+                case "getAnimation":
+                    return animation;
+                case "getHealthRatio":
+                    return HEALTH_RATIO;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private Player visitingPlayer(int id, WorldPoint mining, WorldPoint away) {
+        Integer boxedId = id;
+        return proxy(Player.class, (name) -> {
+            boolean visiting = (tick / VISIT_TICKS) % 2 == 0;
+            switch (name) {
+                case "getId":
+                    return boxedId;
+                case "getWorldLocation":
+                    return visiting ? mining : away;
+                case "getAnimation":
+                    return visiting ? MINING : IDLE;
+                case "getHealthRatio":
+                    return HEALTH_RATIO;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static NPC npc(WorldPoint location) {
+        return proxy(NPC.class, (name) -> {
+            switch (name) {
+                case "getWorldLocation":
+                    return location;
+                case "getHealthRatio":
+                    return HEALTH_RATIO;
+                case "getHealthScale":
+                    return HEALTH_SCALE;
+                case "isDead":
+                    return Boolean.FALSE;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private interface Answer {
+        Object answer(String method);
+    }
+
+    private static <T> T proxy(Class<T> type, Answer answer) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> answer.answer(method.getName())));
+    }
+}